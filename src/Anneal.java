@@ -18,6 +18,8 @@ Copyright (C) 2016  S Combes
 
 package cisolate;
 
+import java.util.SplittableRandom;
+
 public class Anneal extends Optimiser {
 
 // An optimisation class based on simulated annealing
@@ -29,23 +31,44 @@ public class Anneal extends Optimiser {
 // apparent optimum is more likely, which helps avoid vulnerability to
 // local maxima.  Hence a stochastic algorithm.
 
+// The schedule adapts : moves tried per replication scale with the size of
+// the seeker, and reps is only an upper limit.  While the walk wanders
+// downhill a lot without finding anything better it's cooled faster.  Once
+// the best has stood for PATIENCE reps with almost no downhill moves being
+// taken (the walk has frozen) it's warmed up again and restarted from the
+// best, up to REHEATS times, and after that optimisation ends.
+
+static final int SUBREPS=30000;  // Moves tried per replication, if size unknown
+static final int PER_POINT=250;  // Otherwise, per degree of freedom, within
+static final int MIN_SUBREPS=3000;      // these : at most 4 x the fixed
+static final int MAX_SUBREPS=4*SUBREPS; // schedule's, so a rep stays short
+static final int PATIENCE=3;     // Reps without a new best that make a plateau
+static final double GAIN=1e-4;   // Relative gain that counts as a new best
+static final double FROZEN=0.005; // Fraction of moves taken for worse, below
+                                  // which the walk is frozen, and above
+static final double HOT=0.1;      // which it's too hot to find anything
+static final int QUENCH=4;        // Extra reps' cooling when too hot
+static final int REHEATS=2;
+static final double REHEAT=10.0; // Temperature rise on reheating
+
 private int reps;            // replications to try
 private int rep;             // rep we're at
 private int candidates;      // candidate neighbours to try each time
 private int lastChange=0;
+private boolean limited=false; // Stopped by reps, not having converged
 private double temperature;
 private double coolRate;
 private double bestScore;
 private double startScore;
 
 public Anneal(Optimisable optimee,Seeker seeker,int reps,double temperature,
-              double coolRate) 
-{ this(optimee,seeker,reps,temperature,coolRate,Thread.MIN_PRIORITY);}
+              double coolRate,SplittableRandom random) 
+{ this(optimee,seeker,reps,temperature,coolRate,Thread.MIN_PRIORITY,random);}
 // ------------------------------------------------------------------------
 public Anneal(Optimisable optimee,Seeker seeker,int reps,double temperature,
-              double coolRate,int priority) 
+              double coolRate,int priority,SplittableRandom random) 
 {
-super(optimee,seeker,priority); 
+super(optimee,seeker,priority,random); 
 this.reps=reps;
 this.temperature=temperature;
 this.coolRate=coolRate;
@@ -63,49 +86,52 @@ public int completedBy() { return lastChange; } // Only valid once done
 public void optimise()
 { 
 lastChange=0;
-best=start.deepCopy();
-Seeker last=start.deepCopy();
-bestScore=optimee.score(best);
-double lastScore=optimee.score(start);
-startScore=lastScore;
+limited=false;
+Chain chain=new Chain(optimee,start,temperature,random);
+best=chain.best;
+bestScore=chain.bestScore;
+startScore=chain.lastScore;
+
+int subreps=subreps(start);
+int reheats=0;
+int since=0;       // Reps since last warmed (or started)
+int gained=0;      // Rep of the last worthwhile gain
+double mark=bestScore;
 
 for (rep=1;rep<=reps;rep++) {
   if (stop) return; // Note we are running in parallel - stop can be set outside.
-  for (int subrep=0;subrep<30000;subrep++) {
-
-    Seeker candidate=last.neighbour();
- 
-    double score=optimee.score(candidate);
-
-    if (score>bestScore) { // Greedily grab
-      best=candidate.deepCopy();
-      bestScore=optimee.score(best);
-//      System.out.println(rep+" "+subrep+" "+bestScore+" "+temperature);
-      last=candidate;
-      lastScore=score;
-      lastChange=rep;
-    }
-    else if (score>lastScore) { // Greedy grab
-      last=candidate;
-      lastScore=score;
-    }
-    else {
-
-      double delta=(score-lastScore)/Math.abs(lastScore); // Will be -ve
-      double prob=Math.exp(delta/temperature);
-
-      if (prob > random.nextDouble()) {  // Grab it anyway
-        last=candidate;
-        lastScore=score;
-      }
-    }
+  if (chain.walk(subreps)) lastChange=rep;
+  best=chain.best;
+  bestScore=chain.bestScore;
+  chain.temperature*=coolRate;
+  since++;
+  if (bestScore-mark>GAIN*Math.abs(mark)) {
+    mark=bestScore;
+    gained=rep;
+  }
+  if (chain.worse>HOT*subreps && lastChange<rep) // Wandering : cool faster
+    chain.temperature*=Math.pow(coolRate,QUENCH);
+
+  boolean frozen=(chain.worse<FROZEN*subreps);
+  if (frozen && Math.min(rep-gained,since)>=PATIENCE) { // Plateau
+    if (reheats==REHEATS) break;
+    reheats++;
+    since=0;
+    chain.temperature=Math.min(temperature,chain.temperature*REHEAT);
+    chain.restart();
   }
-  temperature*=coolRate;
 }
+limited=(rep>reps);  // Didn't break out, so maybe more to gain
 rep=0;  // Done
 optimee.setSolution(best);
 }
 // -------------------------------------------------------------------------
+static int subreps(Seeker seeker)
+{ // Moves to try per rep
+if (seeker.size()==0) return SUBREPS;
+return (int)Math.max(MIN_SUBREPS,Math.min(MAX_SUBREPS,(long)PER_POINT*seeker.size()));
+}
+// -------------------------------------------------------------------------
 @Override
 public double getProgress() { return (double)(rep)/(double)reps; }
 // -------------------------------------------------------------------------
@@ -113,4 +139,102 @@ public double getFraction() { return bestScore/startScore; }
 // -------------------------------------------------------------------------
 public boolean running() { return (rep!=0); }
 // -------------------------------------------------------------------------
+@Override
+public boolean ranToLimit() { return limited; }
+// -------------------------------------------------------------------------
+static class Chain
+{ // A walk through the seekers at one temperature, remembering the best
+  // seen : Anneal cools one, Tempering keeps one at each of its temperatures
+
+Seeker last,best;
+double lastScore,bestScore;
+double temperature;
+int worse;            // Moves taken that lowered the score, last walk
+private final Optimisable optimee;
+private final DeltaOptimisable deltas;
+private final SplittableRandom random;
+private final Move move=new Move();
+
+Chain(Optimisable optimee,Seeker start,double temperature,SplittableRandom random)
+{
+this.optimee=optimee;
+this.temperature=temperature;
+this.random=random;
+deltas=(optimee instanceof DeltaOptimisable)?(DeltaOptimisable)optimee:null;
+best=start.deepCopy();
+last=start.deepCopy();
+last.setRandom(random.split());
+bestScore=optimee.score(best);
+lastScore=optimee.score(start);
+}
+// -------------------------------------------------------------------------
+boolean walk(int steps)
+{ // Tries steps moves from last, returning true if any found a new best.
+
+// A MovableSeeker is explored in place : each move is
+// made only if taken (or just to score it, then undone if not) and the best
+// so far copied into, so nothing is allocated.  Where the optimee can score
+// a move without it being made, it isn't made at all unless taken.
+boolean improved=false;
+worse=0;
+
+for (int step=0;step<steps;step++) {
+
+  Seeker candidate=null;  // Only for seekers that can't move in place
+  boolean made=false;     // Whether the move is made in last
+  double score;
+
+  MovableSeeker moving=(last instanceof MovableSeeker)?(MovableSeeker)last:null;
+  if (moving!=null && moving.proposeMove(move)) {
+    if (deltas!=null) score=lastScore+deltas.deltaScore(last,move);
+    else {
+      moving.makeMove(move);
+      made=true;
+      score=optimee.score(last);
+    }
+  } else {
+    candidate=last.neighbour();
+    score=optimee.score(candidate);
+  }
+
+  boolean take;
+  if (score>bestScore)      take=true; // Greedily grab
+  else if (score>lastScore) take=true; // Greedy grab
+  else {
+    double delta=(score-lastScore)/Math.abs(lastScore); // Will be -ve
+    double prob=Math.exp(delta/temperature);
+    take=(prob > random.nextDouble());  // Grab it anyway
+  }
+
+  if (!take) {
+    if (made) moving.undoMove(move);
+    continue;
+  }
+  if (candidate!=null) { // A copy, so with no random numbers of its own
+    last=candidate;
+    last.setRandom(random.split());
+  }
+  else if (!made) moving.makeMove(move);
+  if (score<lastScore) worse++;
+  lastScore=score;
+
+  if (score>bestScore) {
+    if (candidate!=null) best=candidate.deepCopy();
+    else                 moving.copyInto(best);
+    bestScore=optimee.score(best);
+    lastScore=bestScore;
+    improved=true;
+  }
+}
+if (deltas!=null) lastScore=optimee.score(last); // No drift from the deltas
+return improved;
+}
+// -------------------------------------------------------------------------
+void restart()
+{ // From the best
+last=best.deepCopy();
+last.setRandom(random.split());
+lastScore=bestScore;
+}
+}
 }
\ No newline at end of file
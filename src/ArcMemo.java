@@ -0,0 +1,97 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+class ArcMemo {
+
+// Remembers the best arc Route2D found between a pair of control points,
+// keyed on their coordinates : best radius, its score and whether any arc
+// avoided the copper at all.  Route2D.run() sweeps the same pairs on each
+// pass of its grouping loop, but only those either side of a replace()
+// are new, so nearly all the rest can be answered from here.
+
+// Open addressing over primitive arrays, so no boxing.  Entries are never
+// removed - a memo only lives as long as the smoothing of one route.
+
+static final long EMPTY=-1L;   // Not a possible key
+static final int INVALID=0;    // Radius recorded when no arc was valid
+
+private long [] keys;
+private double [] scores;
+private int [] radii;
+private int entries=0;
+
+ArcMemo()             { this(1024); }
+ArcMemo(int capacity)
+{
+int size=16;
+while (size<2*capacity) size*=2;  // Power of 2, at most half full
+allocate(size);
+}
+// ------------------------------------------------------------------
+private void allocate(int size)
+{
+keys  =new long[size];
+scores=new double[size];
+radii =new int[size];
+java.util.Arrays.fill(keys,EMPTY);
+}
+// ------------------------------------------------------------------
+static long key(Point2D start,Point2D end)
+{ // Pixel coordinates are well under 16 bits
+return ((long)(start.getX()&0xFFFF)<<48) | ((long)(start.getY()&0xFFFF)<<32) |
+       ((long)(end.getX()  &0xFFFF)<<16) |  (long)(end.getY()  &0xFFFF);
+}
+// ------------------------------------------------------------------
+private int hash(long key)
+{
+long h=key*0x9E3779B97F4A7C15L; // Fibonacci hashing spreads the bits
+return (int)(h>>>32)&(keys.length-1);
+}
+// ------------------------------------------------------------------
+int slot(long key)
+{ // Where key is held, or -1 if not known
+for (int i=hash(key);keys[i]!=EMPTY;i=(i+1)&(keys.length-1))
+  if (keys[i]==key) return i;
+return -1;
+}
+// ------------------------------------------------------------------
+double score(int slot)   { return scores[slot]; }
+int radius(int slot)     { return radii[slot]; }
+boolean valid(int slot)  { return radii[slot]!=INVALID; }
+int size()               { return entries; }
+// ------------------------------------------------------------------
+void put(long key,double score,int radius)
+{
+if (2*(entries+1)>keys.length) {  // Grow before we get crowded
+  long [] oldKeys=keys;
+  double [] oldScores=scores;
+  int [] oldRadii=radii;
+  allocate(2*keys.length);
+  entries=0;
+  for (int i=0;i<oldKeys.length;i++)
+    if (oldKeys[i]!=EMPTY) put(oldKeys[i],oldScores[i],oldRadii[i]);
+}
+int i=hash(key);
+while (keys[i]!=EMPTY && keys[i]!=key) i=(i+1)&(keys.length-1);
+if (keys[i]==EMPTY) entries++;
+keys[i]=key;
+scores[i]=score;
+radii[i]=radius;
+}
+}
\ No newline at end of file
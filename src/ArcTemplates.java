@@ -0,0 +1,125 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+class ArcTemplates {
+
+// The pixels a QuantisedCircularArc visits depend only on the end point
+// relative to the start, the radius and the handedness - the arithmetic is
+// all integer and relative to the start.  So each shape is rasterised once,
+// at the origin, and kept as a template of offsets {dx0,dy0,dx1,dy1 ...}
+// which Route2D adds to the start pixel when scoring against lastTouch.
+
+// Most arcs Route2D tries hit copper within a few pixels and are dropped,
+// and most shapes are only ever asked for once, so building templates
+// eagerly costs more than it saves.  Instead a shape is only given a
+// template on its second request (the first just records the key and gets
+// null, for the caller to walk the QuantisedCircularArc itself), and that
+// template is rasterised lazily, only as far as any caller has needed to
+// look : see Template.extend().
+
+// Shared by all the routes smoothing in parallel, so bounded : a set
+// associative table of primitive keys, WAYS templates per set, with the
+// least recently used of a set making way for a new shape.  The sets are
+// striped over a few locks so the smoothing threads rarely wait.
+
+static final int SETS=2048;
+static final int WAYS=4;
+static final int LOCKS=64;
+static final long EMPTY=-1L;  // Not a possible key
+
+private static final long [] keys=new long[SETS*WAYS];
+private static final Template [] templates=new Template[SETS*WAYS];
+private static final Object [] locks=new Object[LOCKS];
+
+static {
+java.util.Arrays.fill(keys,EMPTY);
+for (int i=0;i<LOCKS;i++) locks[i]=new Object();
+}
+// ------------------------------------------------------------------
+private ArcTemplates() {}  // Static only
+// ------------------------------------------------------------------
+static Template get(int dx,int dy,int radius,boolean cw)
+{ // Template for an arc from (0,0) to (dx,dy), as QuantisedCircularArc,
+  // or null if the shape hasn't been asked for recently
+long key=(((long)dx&0xFFFF)<<37) | (((long)dy&0xFFFF)<<21) |
+         ((long)radius<<1) | (cw?1L:0L);  // Radius < 2^20
+int set=(int)((key*0x9E3779B97F4A7C15L)>>>32)&(SETS-1);
+int first=set*WAYS;
+
+synchronized (locks[set&(LOCKS-1)]) {
+  int way=0;   // Ways are kept most recently used first
+  while (way<(WAYS-1) && keys[first+way]!=key) way++;
+
+  Template template=null;
+  if (keys[first+way]==key) {
+    template=templates[first+way];
+    if (template==null) // Second time, so worth building
+      template=new Template(new QuantisedCircularArc(cw,new Point2D(0,0),
+                                             new Point2D(dx,dy),radius));
+  }
+  for (;way>0;way--) { // Move to the front, dropping the last if new
+    keys[first+way]     =keys[first+way-1];
+    templates[first+way]=templates[first+way-1];
+  }
+  keys[first]=key;
+  templates[first]=template;
+  return template;
+}
+}
+// ------------------------------------------------------------------
+static class Template
+{ // Offsets are only ever appended, so a reader may use the first size()
+  // of whatever offsets() array it sees without taking the lock
+
+static final int CHUNK=8;    // Offsets rasterised per extend(), at least
+
+private volatile int [] offsets=new int[2*CHUNK];
+private volatile int size=0; // Written after the offsets it covers
+private Iterator<Point2D> arc;  // Dropped when complete
+
+Template(QuantisedCircularArc arc) { this.arc=arc.iterator(); }
+// ------------------------------------------------------------------
+int size()       { return size; }     // Read this before offsets()
+int [] offsets() { return offsets; }
+// ------------------------------------------------------------------
+synchronized boolean extend(int length)
+{ // Rasterises a little more of the arc, so that size() is more than
+  // length (if the arc is that long).  Returns false if it isn't.
+
+int n=size;
+if (n>length) return true;  // Another thread got here first
+if (arc==null) return false;   // Complete
+
+int [] current=offsets;
+while (n<=length || (n%CHUNK)!=0) {
+  if (!arc.hasNext()) { arc=null; break; }
+  if (n==current.length) current=Arrays.copyOf(current,2*n);
+  Point2D point=arc.next();
+  current[n++]=point.getX();
+  current[n++]=point.getY();
+}
+offsets=current;
+size=n;
+return (n>length);
+}
+}
+}
\ No newline at end of file
@@ -73,6 +73,9 @@ static final double INCHASMM=25.4;
 double backlashRad;
 int tsd,tsm,copper,maxprocs,etch;
 boolean smoothEtch=false;  
+int smoothing=Route2D.GREEDY;
+boolean adaptiveRadius=false;
+boolean reproducible=false;  // Same G code every run (see JobContext)
 private double xmmPerPixel;
 private double ymmPerPixel;  
 private double xoffset=0.0;
@@ -89,8 +92,14 @@ public boolean drillCode=true;
 public int assessedCu=CU_GUESS;
 private boolean mixedEdge;
 protected volatile boolean stop=false;
-public Anneal anneal,annealPair;
-private ArrayList<Future<?>> route_done_future;
+public Optimiser anneal,annealPair;
+static final int ANNEALING=0;  // Transit optimisers
+static final int TEMPERING=1;
+static final int LOCAL_SEARCH=2;
+int optimiser=ANNEALING;
+int seeding=TourSeeder.GREEDY_EDGE;  // Starting tours for them
+private volatile RouteScheduler scheduler; // Cancelled by gracefulExit()
+JobContext job;          // This run's, shared by skeleton and routes
 double drillPlunge=-1.8; // mm, for G Code
 double drillTransit=1.0; // mm, for G Code
 double millPlunge=-0.3;  // mm, for G Code
@@ -327,8 +336,40 @@ if (annealPair.running()) {
 }  
 }
 // ---------------------------------------------------------------
+private Optimiser transitOptimiser(Optimisable optimee,Seeker start,int reps)
+{ // Temperature and cooling rate are tuneable.  Tempering wants a processor
+  // per temperature, and drilling and milling are optimised at once, so
+  // each gets half of maxprocs, and anneals if that's under two - unless the
+  // result mustn't depend on the processors.  Each gets its random numbers
+  // from the job, in the order asked for.
+if (optimiser==LOCAL_SEARCH)
+  return new LocalSearch(optimee,start,reps,job.random());
+int chains=reproducible?Tempering.CHAINS:maxprocs/2;
+if (optimiser==TEMPERING && chains>1)
+  return new Tempering(optimee,start,reps,0.002,0.9,chains,job.random());
+return new Anneal(optimee,start,reps,0.002,0.9,job.random());
+}
+// ---------------------------------------------------------------
+private void logSeeding(String what,Points2D points,PathOrder seeded,PathOrder scan)
+{ // Optimisers report against the seeded tour, so say what seeding did
+if (seeding==TourSeeder.SCAN || points.score(scan)==0.0) return;
+log.append(what+" starting tour transits are "+
+     String.format("%.1f",100.0*points.score(seeded)/points.score(scan))+
+     "% of scan order"+nL);
+}
+// ---------------------------------------------------------------
+private void logLimit(String what,Optimiser optimiser,int reps)
+{ // Says so if the replications ran out before the optimiser converged, as
+  // more would likely give shorter transits
+if (!optimiser.ranToLimit()) return;
+String tmp=what+" optimisation used all "+reps+" replications before "+
+           "settling : raising them may shorten the transits";
+System.out.println(tmp);
+log.append(tmp+nL);
+}
+// ---------------------------------------------------------------
 private void updateDuke() 
-    { progressBarDuke.setValue(Route2D.noSolved());}
+    { if (job!=null) progressBarDuke.setValue(job.solved()); }
 // ---------------------------------------------------------------
 public void aChange() { submit(this); }
 // ---------------------------------------------------------------
@@ -586,9 +627,7 @@ public void gracefulExit() {
   if (anneal!=null)      anneal.gracefulExit(); 
   if (annealPair!=null)  annealPair.gracefulExit(); 
   stop=true; 
-  if (route_done_future!=null)
-    for (Future<?> f : route_done_future)
-      if (!f.isDone()) f.cancel(true);
+  if (scheduler!=null)   scheduler.cancel();
 
   String tmp="*** Processing run cancelled at "+new Date();
   log.append(nL+tmp+nL);
@@ -765,14 +804,18 @@ if (maxprocs>Runtime.getRuntime().availableProcessors())
   maxprocs=Runtime.getRuntime().availableProcessors();
 ExecutorService pool=
        Executors.newFixedThreadPool(maxprocs);
-
-if (stop) return;
-skeleton=new Skeleton(bimg,pool,this);
 if (stop) return;
+ForkJoinPool smoothPool=new ForkJoinPool(maxprocs); // Smooths routes, and big
+                                                    // ones within.  Shut down
+                                                    // on every way out below
+job=new JobContext(smoothPool,smoothing,adaptiveRadius,
+          reproducible?JobContext.REPRODUCIBLE:new SplittableRandom().nextLong());
+log.append("Optimisation seed="+job.seed+nL);
+skeleton=new Skeleton(bimg,pool,this,job);
+if (stop) { smoothPool.shutdown(); return; }
 if (flipped<0) xoffset=(img.getWidth()*xmmPerPixel);
 else           xoffset=0.0;
-Route2D.initialise(skeleton.lasttouch,xoffset,yoffset,
-                   xmmPerPixel*flipped,ymmPerPixel);
+job.place(xoffset,yoffset,xmmPerPixel*flipped,ymmPerPixel);
 
 writeTouch("heat");
 heat=makeImage(img);
@@ -800,7 +843,7 @@ if (!smoothEtch && etch>0) drawEtch(g2d); // Can have it now if not smoothed
 
 aChange();  // Time to update GUI
 
-if (stop) return;
+if (stop) { smoothPool.shutdown(); return; }
 System.out.println("\n\n"+skeleton.drills.size()+" drill points found");
 log.append(skeleton.drills.size()+" drill points found"+nL);
 System.out.println(skeleton.threeWays.size()+" three-way intersections found");
@@ -809,8 +852,11 @@ System.out.println(skeleton.fourWays.size()+" four-way intersections found\n");
 // ------------------------------------------------------------
 // Initiate thread to optimise drilling order
 
-anneal=new Anneal(skeleton.drills, // last two params are tuneable
-              new PathOrder(skeleton.drills.size()),tsd,0.002,0.9);
+PathOrder drillStart=TourSeeder.path(skeleton.drills,seeding);
+logSeeding("Drilling",skeleton.drills,drillStart,
+           new PathOrder(skeleton.drills.size()));
+drillStart.steer(new Neighbours(skeleton.drills,Neighbours.STEERING,1));
+anneal=transitOptimiser(skeleton.drills,drillStart,tsd);
 log.append("Drilling optimisation replications="+tsd+nL);
 
 Future< ? > tsDoneFuture;
@@ -823,9 +869,11 @@ else
 // ------------------------------------------------------------
 // Kick off the milling paths optimisation thread
 
-annealPair=
-      new Anneal(skeleton.transits, // last two params are tuneable
-         new PathPairOrder(skeleton.endPairs().size()),tsm,0.002,0.9);
+PathPairOrder millStart=TourSeeder.pairs(skeleton.transits,seeding);
+logSeeding("Milling",skeleton.transits,millStart,
+           new PathPairOrder(skeleton.transits.size()));
+millStart.steer(new Neighbours(skeleton.transits,Neighbours.STEERING,2));
+annealPair=transitOptimiser(skeleton.transits,millStart,tsm);
 Future< ? > tspDoneFuture;
 if (tsm==0)
   System.out.println("No mill order optimisation requested");
@@ -837,6 +885,9 @@ log.append("Milling optimisation replications="+tsm+nL);
 tspDoneFuture=pool.submit(annealPair);
 
 System.out.println("\nFound "+skeleton.routes.size()+" routes to optimise");
+System.out.println("Routes join into "+skeleton.trails.size()+" continuous cuts");
+log.append(skeleton.routes.size()+" routes join into "+skeleton.trails.size()+
+           " continuous cuts"+nL);
 progressBarDuke.setMaximum(skeleton.routes.size());
 
 if ((skeleton.drills.size()/(skeleton.routes0w+1)) < 20.0) { 
@@ -846,70 +897,17 @@ if ((skeleton.drills.size()/(skeleton.routes0w+1)) < 20.0) {
   log.append("*** The ratio between drill points and circuits suggests "+
           "the copper colour may be wrongly assigned ***"+nL);
 }
-if (stop) return; 
+if (stop) { smoothPool.shutdown(); return; } 
 // ------------------------------------------------------------
-// Put the jobs for route smoothing into the pool
-Route2D.resetCount();
-route_done_future=new ArrayList<Future<?>>();  
-int bigIndex=0;
-int [] submitOrder=new int[skeleton.routes.size()];
-boolean [] done=new boolean[skeleton.routes.size()];
+// Put the jobs for route smoothing into the pool.  The scheduler orders
+// them, biggest first, and hears as each finishes - no polling needed.
+scheduler=null;
 
 if (!raw && millCode) {
   System.out.println("Mill path smoothing starting at "+new Date());
-
-  int index=0;
-  // The biggest one takes >> longer than the others.  For parallel 
-  // processing efficiency, start this one first.  A bit overkill.
-  int maxLen=0;
-  for (int i=0;i<skeleton.routes.size();i++) {
-    if (skeleton.routes.get(i).size()>maxLen) {
-      maxLen=skeleton.routes.get(i).size(); 
-      bigIndex=i; 
-    } 
-  }
-  if (stop) return;
-  route_done_future.add(pool.submit(skeleton.routes.get(bigIndex))); // Biggest one
-  submitOrder[bigIndex]=index++;
-
-  // Put the rest in, never having more than max processors running
-  // While optimisations are still running, we will have maxprocs+2
-  // threads going
-
-  try {
-    for (int i=0;i<skeleton.routes.size();i++) {
-      if (i!=bigIndex) {
-        do {
-          int active=0;
-          for (int j=0;j<index;j++) {
-            if (done[j]) continue;
-
-            try { route_done_future.get(j).get(50, TimeUnit.MILLISECONDS); 
-                  done[j]=true;
-            } catch (TimeoutException e) { 
-              active++; 
-
-              updateDrill();
-              updateMill();       
-              updateDuke();
-              
-              if (stop) skeleton.routes.get(j).gracefulExit();             
-              if (stop) skeleton.routes.get(bigIndex).gracefulExit();             
-            } catch (CancellationException e) { /* Just asynchronous */ }
-          }
-          if (active < maxprocs) break;
-          Thread.sleep(150);  // Don't test again too soon
-        } while (true);
-
-        if (stop) return;
-
-        route_done_future.add(pool.submit(skeleton.routes.get(i))); 
-        submitOrder[i]=index++;
-      }
-    }
-  }
-  catch (InterruptedException e) { System.out.println("A Interruption **** "+e); }
-  catch (ExecutionException e)   { System.out.println("A Exec ERROR **** "+e);e.printStackTrace(); }
+  if (stop) { smoothPool.shutdown(); return; }
+  scheduler=new RouteScheduler(skeleton.routes,smoothPool);
+  scheduler.start(() -> SwingUtilities.invokeLater(this::updateDuke));
 }
 pool.shutdown(); // No more submissions
 
@@ -920,7 +918,7 @@ pool.shutdown(); // No more submissions
 boolean finished=false;
 
 do {
-  if (stop) return;
+  if (stop) { smoothPool.shutdown(); return; }
 
   updateDrill();
   updateMill();       
@@ -937,6 +935,7 @@ if (tsd!=0) {
 
   log.append("G code drilling transits have been reduced to "+
      String.format("%.1f",anneal.getFraction()*100.0)+"% of original"+nL);
+  logLimit("Drilling",anneal,tsd);
 } 
 if (!stop && drillCode) {
   try {
@@ -1001,7 +1000,7 @@ aChange();  // Time to update GUI
 finished=false;
 
 do {
-  if (stop) return;
+  if (stop) { smoothPool.shutdown(); return; }
   updateMill();       
   updateDuke();
   try { finished|=(tspDoneFuture.get(100,TimeUnit.MILLISECONDS)==null); }
@@ -1014,11 +1013,13 @@ if (tsm!=0) { // Only say it's done if we did something
   System.out.println("Mill order optimisation complete "+new Date());
   log.append("G code milling transits have been reduced to "+
      String.format("%.1f",annealPair.getFraction()*100.0)+"% of original"+nL);
+  logLimit("Milling",annealPair,tsm);
 }
 copyImage(board,img);
 
 int cnc_x=0; // Initially
 int cnc_y=0;
+boolean smoothComplete=true; // Unless writing the smoothed G code fails
 
 if (!stop && millCode) {
   try {
@@ -1038,53 +1039,60 @@ if (!stop && millCode) {
 
     pwr.println(filePreamble("Gcode for un-smoothed milling",fname,(flipped<0)));
   
-// Optimiser can choose to cut some traces in the 'reverse' direction to
+// Optimiser can choose to cut some trails in the 'reverse' direction to
 // the way we found them.  j>k is the clue.  Note, j=k+1 or k=j+1. Hence j!=k. 
+// A reversed trail cuts its routes in reverse order, each reversed.
+
+// The raw G code doesn't depend on smoothing, so is written as the tour is
+// walked.  The smoothed G code for each cut is written as soon as its route,
+// and those of all the cuts before it, are smoothed : the cuts are recorded
+// here, in tour order, for the InOrder buffer after.
+
+    int cuts=0;
+    for (int [] trail : skeleton.trails) cuts+=trail.length;
+    int [] cutRoute=new int[cuts];
+    boolean [] cutReversed=new boolean[cuts];
+    boolean [] cutAttached=new boolean[cuts];
+    int cut=0;
 
     PathPairOrder ppo=skeleton.transits.optimum;
-    for (int i=0;i<skeleton.routes.size()*2;i+=2) { 
-      int j=ppo.mapping(i);  
-      int k=ppo.mapping(i+1);
-
-      int baseRoute=j/2;
-      boolean reversed=(j>k);
-      int startIndex=0; // Always 0, but now has a name
-      int endIndex=skeleton.routes.get(baseRoute).size()-1;
-
-      // Need to see if that specific route has been smoothed yet ...
-      if (!raw) { // ... but it won't have been smoothed if we don't want smoothing
-      
-        try { do {} while (route_done_future.get(submitOrder[baseRoute]).get()!=null); }
-        catch (InterruptedException e) { System.out.println("Int ERROR **** "+e); }
-        catch (ExecutionException e)   { System.out.println("Exec ERROR **** "+e); }
-        catch (CancellationException e) { /* Just asynchronous */ }
-        updateDuke();
-      }
-      boolean attached= // Does it follow on from the last one?
-       (skeleton.routes.get(baseRoute).getX(reversed?endIndex:startIndex)==cnc_x &&
-        skeleton.routes.get(baseRoute).getY(reversed?endIndex:startIndex)==cnc_y);
-
-      // Set the end for next time 
-      cnc_x=skeleton.routes.get(baseRoute).getX(reversed?startIndex:endIndex); 
-      cnc_y=skeleton.routes.get(baseRoute).getY(reversed?startIndex:endIndex); 
-      if (!raw)
-        pw.print(skeleton.routes.get(baseRoute).smoothGcode(reversed,attached,millRate,
-           plungeRate,millPlunge,millTransit,doBacklash,backlashRad,skeleton));
+    for (int i=0;i<skeleton.trails.size()*2;i+=2) { 
+      int [] trail=skeleton.trails.get(ppo.mapping(i)/2);
+      boolean trailReversed=(ppo.mapping(i)>ppo.mapping(i+1));
+
+      for (int t=0;t<trail.length;t++) { // Routes of a trail follow on without a retract
+        int end=trailReversed?(trail[trail.length-1-t]^1):trail[t];
+        int baseRoute=end/2;
+        boolean reversed=((end%2)==1);
+        int startIndex=0; // Always 0, but now has a name
+        int endIndex=skeleton.routes.get(baseRoute).size()-1;
+
+        boolean attached= // Does it follow on from the last one?
+         (skeleton.routes.get(baseRoute).getX(reversed?endIndex:startIndex)==cnc_x &&
+          skeleton.routes.get(baseRoute).getY(reversed?endIndex:startIndex)==cnc_y);
+
+        // Set the end for next time 
+        cnc_x=skeleton.routes.get(baseRoute).getX(reversed?startIndex:endIndex); 
+        cnc_y=skeleton.routes.get(baseRoute).getY(reversed?startIndex:endIndex); 
+        cutRoute[cut]=baseRoute;
+        cutReversed[cut]=reversed;
+        cutAttached[cut++]=attached;
         pwr.print(skeleton.routes.get(baseRoute).rawGcode(reversed,attached,millRate,
-           plungeRate,millPlunge,millTransit,doBacklash,backlashRad,skeleton));
-
-      // Draw cutting routes in green
-      for (int m=0;m<skeleton.routes.get(baseRoute).size();m++) {
-        for (int p=-2;p<2;p++)
-          for (int q=-2;q<2;q++) {
-            try { img.setRGB(skeleton.routes.get(baseRoute).getX(reversed?endIndex-m:startIndex+m)+p,
-                     skeleton.routes.get(baseRoute).getY(reversed?endIndex-m:startIndex+m)+q,0x00FF00);
-            } catch (ArrayIndexOutOfBoundsException e)  {  }  // Discard      
-          }  
+             plungeRate,millPlunge,millTransit,doBacklash,backlashRad,skeleton));
+
+        // Draw cutting routes in green
+        for (int m=0;m<skeleton.routes.get(baseRoute).size();m++) {
+          for (int p=-2;p<2;p++)
+            for (int q=-2;q<2;q++) {
+              try { img.setRGB(skeleton.routes.get(baseRoute).getX(reversed?endIndex-m:startIndex+m)+p,
+                       skeleton.routes.get(baseRoute).getY(reversed?endIndex-m:startIndex+m)+q,0x00FF00);
+              } catch (ArrayIndexOutOfBoundsException e)  {  }  // Discard      
+            }  
+        }
       }
    
       // Draw intermediates (transits, not cuts)  in red
-      if ((i+2) >= (skeleton.routes.size()*2)) break;  // No 'intermediate' here  
+      if ((i+2) >= (skeleton.trails.size()*2)) break;  // No 'intermediate' here  
       int xstart=skeleton.transits.getX(ppo.mapping(i+1));
       int ystart=skeleton.transits.getY(ppo.mapping(i+1));
       int xend=skeleton.transits.getX(ppo.mapping(i+2));
@@ -1107,22 +1115,63 @@ if (!stop && millCode) {
       }  
     }
 
-    if (!raw) {
-      pw.println("G00 Z"+millTransit);
-      pw.println("M05 (Spindle off)");  
-      System.out.println(nL+"G code smoothed file is "+
-        String.format("%.1f",100.0*(double)fi.length()/fir.length())+
-        "% of raw file length.");
-
-      log.append("G code smoothed file is "+
-        String.format("%.1f",100.0*(double)fi.length()/fir.length())+
-        "% of raw file length."+nL);
-
-      pw.close();
-    }
     pwr.println("G00 Z"+millTransit);
     pwr.println("M05 (Spindle off)");  
     pwr.close();
+
+    if (!raw) { // Now the smoothed G code, as the routes become ready.  A route
+                // that failed to smooth is cut as found instead, so the file
+                // is still complete.
+      Throwable [] failed=new Throwable[cuts];
+      InOrder smoothed=new InOrder(cuts,(c) -> {
+        if (stop) return; // Cancelled routes aren't worth the writing
+        Route2D route=skeleton.routes.get(cutRoute[c]);
+        if (failed[c]==null) {
+          pw.print(route.smoothGcode(cutReversed[c],cutAttached[c],
+             millRate,plungeRate,millPlunge,millTransit,doBacklash,backlashRad,skeleton));
+          return;
+        }
+        String tmp="*** Route "+cutRoute[c]+" failed to smooth ("+failed[c]+
+                   "), so is cut unsmoothed";
+        System.out.println(tmp);
+        log.append(tmp+nL);
+        pw.print(route.rawGcode(cutReversed[c],cutAttached[c],
+             millRate,plungeRate,millPlunge,millTransit,doBacklash,backlashRad,skeleton));
+      });
+      for (int c=0;c<cuts;c++) {
+        final int position=c;
+        scheduler.smoothed(cutRoute[c]).whenComplete((v,e) -> {
+          if (e!=null) failed[position]=(e.getCause()!=null)?e.getCause():e;
+          smoothed.ready(position); // After failed[], which ready() publishes
+        });
+      }
+      // The scheduler's listener moves the progress bar, and gracefulExit()
+      // cancels it, which finishes the rest early : so just wait.
+      try { smoothed.done().get(); }
+      catch (InterruptedException e) { System.out.println("Int ERROR **** "+e); smoothComplete=false; }
+      catch (ExecutionException e)   { smoothComplete=false; }
+      smoothPool.shutdown(); // Every route is done with it
+      if (stop) { pw.close(); return; }
+      updateDuke();
+
+      if (smoothComplete) {
+        pw.println("G00 Z"+millTransit);
+        pw.println("M05 (Spindle off)");  
+        System.out.println(nL+"G code smoothed file is "+
+          String.format("%.1f",100.0*(double)fi.length()/fir.length())+
+          "% of raw file length.");
+
+        log.append("G code smoothed file is "+
+          String.format("%.1f",100.0*(double)fi.length()/fir.length())+
+          "% of raw file length."+nL);
+      } else { // Writing itself went wrong : no trailer, so it can't pass for whole
+        String tmp="*** Smoothed G code abandoned, smoothIsolation."+sExt+
+                   " is incomplete - cut rawIsolation."+sExt+" instead";
+        System.out.println(tmp);
+        log.append(tmp+nL);
+      }
+      pw.close();
+    }
   } catch (IOException e) { e.printStackTrace(); System.exit(0); }
 
   millPath=makeImage(img);
@@ -1130,7 +1179,7 @@ if (!stop && millCode) {
   
   // G code generation is very fast, no need to parallelise
   System.out.println(nL+"Start G-code image generation "+new Date());
-  if (raw) {
+  if (raw || !smoothComplete) {
     gci=new GCodeInterpreter(mydir+"/rawIsolation."+sExt,
          img.getWidth()*xmmPerPixel,img.getHeight()*ymmPerPixel);
   } else { // Use smoothed version if possible
@@ -1140,6 +1189,7 @@ if (!stop && millCode) {
   System.out.println("End G-code image generation "+new Date()+nL);
   gcode=makeImage(gci.bi); 
 }
+smoothPool.shutdown(); // Idempotent, so also covers raw and no milling
 
 // ------------------------------------------------------------
 if (stop) return;
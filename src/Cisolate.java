@@ -668,8 +668,10 @@ JMenuItem tips=new JMenuItem(new AbstractAction("Hints and Tips") {
       "The Constellation file will always be from the orientation of the"+nL+
       "unflipped board, and vice-versa for Noitalletsnoc file, even if"+nL+
       "the board is flipped"+nL+nL+
-      "Some boards need more than the default 20 iterations to fully optimise paths"+nL+
-      "and computer time is likely a better investment that machine time."+nL+nL+ 
+      "Optimisation iterations are an upper limit : annealing stops early once the"+nL+
+      "paths stop improving, but some boards need more than the default 20.  If the"+nL+
+      "log says an optimisation used all its replications before settling,"+nL+
+      "raise them : computer time is likely a better investment than machine time."+nL+nL+ 
       "Once processing has started on a board, other tabs (initially greyed out) become"+nL+
       "selectable as the different elements of the analysis complete."+nL+nL+
       "G Code output is Metric (G21)"+nL+nL+
@@ -762,6 +764,64 @@ jmOptimise.add(optM);
 jmOptimise.add(optG);
 jmOptimise.add(optE);
 
+final JMenu jmSmoothing=new JMenu("Smoothing method");
+final ButtonGroup smoothGroup=new ButtonGroup();
+final JRadioButtonMenuItem smoothG=new JRadioButtonMenuItem(
+          "Greedy grouping (original)",true); 
+final JRadioButtonMenuItem smoothO=new JRadioButtonMenuItem(
+          "Fewest arcs (optimal segmentation, predictable time)",false); 
+final JRadioButtonMenuItem smoothP=new JRadioButtonMenuItem(
+          "Straight lines only (fastest, larger G code)",false); 
+smoothGroup.add(smoothG);
+smoothGroup.add(smoothO);
+smoothGroup.add(smoothP);
+jmSmoothing.add(smoothG);
+jmSmoothing.add(smoothO);
+jmSmoothing.add(smoothP);
+jmOptimise.add(jmSmoothing);
+final JCheckBoxMenuItem optR=new JCheckBoxMenuItem(
+          "Adaptive arc radius search (faster smoothing, near optimal)",false); 
+jmOptimise.add(optR);
+final JCheckBoxMenuItem optP=new JCheckBoxMenuItem(
+          "Reproducible optimisation (same board and settings, same G-code)",false); 
+jmOptimise.add(optP);
+
+final JMenu jmTransits=new JMenu("Transit optimiser");
+final ButtonGroup transitGroup=new ButtonGroup();
+final JRadioButtonMenuItem transitA=new JRadioButtonMenuItem(
+          "Simulated annealing (original, one processor)",true); 
+final JRadioButtonMenuItem transitT=new JRadioButtonMenuItem(
+          "Parallel tempering (shares the processors, better transits)",false); 
+final JRadioButtonMenuItem transitL=new JRadioButtonMenuItem(
+          "Local search (2-opt and Or-opt, fastest)",false); 
+transitGroup.add(transitA);
+transitGroup.add(transitT);
+transitGroup.add(transitL);
+jmTransits.add(transitA);
+jmTransits.add(transitT);
+jmTransits.add(transitL);
+jmOptimise.add(jmTransits);
+
+final JMenu jmSeeding=new JMenu("Starting tour");
+final ButtonGroup seedGroup=new ButtonGroup();
+final JRadioButtonMenuItem seedS=new JRadioButtonMenuItem(
+          "Scan order (original)",false); 
+final JRadioButtonMenuItem seedN=new JRadioButtonMenuItem(
+          "Nearest neighbour",false); 
+final JRadioButtonMenuItem seedG=new JRadioButtonMenuItem(
+          "Greedy edge (usually shortest)",true); 
+final JRadioButtonMenuItem seedH=new JRadioButtonMenuItem(
+          "Hilbert curve (quickest, for very large boards)",false); 
+seedGroup.add(seedS);
+seedGroup.add(seedN);
+seedGroup.add(seedG);
+seedGroup.add(seedH);
+jmSeeding.add(seedS);
+jmSeeding.add(seedN);
+jmSeeding.add(seedG);
+jmSeeding.add(seedH);
+jmOptimise.add(jmSeeding);
+
 //...................................... SCREENFIT ..........................................
 final JMenuItem screenfit=new JMenuItem(new AbstractAction("Fit to screen") { 
   private static final long serialVersionUID = 1L;
@@ -1013,6 +1073,15 @@ processButton.addActionListener(new ActionListener() {
     board.tsm=(optM.isSelected()?millReps:0);
     board.raw=(!optG.isSelected() && !optE.isSelected());
     board.smoothEtch=(optE.isSelected());
+    board.smoothing=(smoothO.isSelected()?Route2D.OPTIMAL:
+                     smoothP.isSelected()?Route2D.POLYLINE:Route2D.GREEDY);
+    board.adaptiveRadius=(optR.isSelected());
+    board.reproducible=(optP.isSelected());
+    board.optimiser=(transitT.isSelected()?Board.TEMPERING:
+                     transitL.isSelected()?Board.LOCAL_SEARCH:Board.ANNEALING);
+    board.seeding=(seedS.isSelected()?TourSeeder.SCAN:
+                   seedN.isSelected()?TourSeeder.NEAREST:
+                   seedH.isSelected()?TourSeeder.HILBERT:TourSeeder.GREEDY_EDGE);
     board.drillPlunge=drillPlunge;
     board.drillTransit=drillTransit;
     board.millPlunge=millPlunge;
@@ -0,0 +1,28 @@
+/*
+Copyright (C) 2016  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+
+package cisolate;
+
+public interface DeltaOptimisable extends Optimisable {
+
+  public abstract double deltaScore(Seeker s,Move move);
+  // score(s.apply(move))-score(s), but without making the move : usually
+  // only a little of the score depends on what a small move changes, so
+  // this can be O(1) where score() is O(n).  The optimiser falls back on
+  // score() for Seekers that don't propose moves.
+}
\ No newline at end of file
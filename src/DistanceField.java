@@ -0,0 +1,108 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+class DistanceField {
+
+// Euclidean distance from each pixel to the nearest copper, or from each
+// copper pixel to the nearest clear one.  Copper is where the map given is
+// 0, as for Skeleton's lastTouch.  Distances are between pixel centres and
+// held squared (so exact, as integers) : positive off the copper, negative
+// on it, so one array serves both ways.
+
+// Built by the separable transform of Felzenszwalb and Huttenlocher :
+// distances along each column by two sweeps, then the lower envelope of
+// parabolas along each row.  Linear in the number of pixels.
+
+private final int [][] squared;
+private final int width,height;
+
+DistanceField(int [][] map)
+{
+width=map.length;
+height=map[0].length;
+squared=new int[width][height];
+
+int [][] toCopper=transform(map,true);
+int [][] toClear =transform(map,false);
+for (int x=0;x<width;x++)
+  for (int y=0;y<height;y++)
+    squared[x][y]=(map[x][y]!=0)?toCopper[x][y]:(-toClear[x][y]);
+}
+// ------------------------------------------------------------------
+int getWidth()  { return width; }
+int getHeight() { return height; }
+// ------------------------------------------------------------------
+int squared(int x,int y)       { return squared[x][y]; }
+double clearance(int x,int y)  // To the nearest copper, 0 on copper
+  { return Math.sqrt(Math.max(0,squared[x][y])); }
+double depth(int x,int y)      // Into the copper, 0 off it
+  { return Math.sqrt(Math.max(0,-squared[x][y])); }
+// ------------------------------------------------------------------
+private int [][] transform(int [][] map,boolean toCopper)
+{ // Squared distance from each pixel to the nearest site : copper if
+  // toCopper, otherwise clear pixels.  Sites themselves are 0.
+
+int far=width+height;         // Further than any real distance
+int [][] result=new int[width][height];
+
+for (int x=0;x<width;x++) {   // Along columns
+  int last=-far;
+  for (int y=0;y<height;y++) {
+    if (((map[x][y]==0)==toCopper)) last=y;
+    result[x][y]=y-last;
+  }
+  last=2*far;
+  for (int y=height-1;y>=0;y--) {
+    if (((map[x][y]==0)==toCopper)) last=y;
+    int d=Math.min(result[x][y],last-y);
+    result[x][y]=d*d;
+  }
+}
+
+int [] f=new int[width];      // Then along rows
+int [] v=new int[width];      // Parabola apexes in the envelope ...
+double [] z=new double[width+1];  // ... and where each takes over
+for (int y=0;y<height;y++) {
+  for (int x=0;x<width;x++) f[x]=result[x][y];
+
+  int k=0;
+  v[0]=0;
+  z[0]=Double.NEGATIVE_INFINITY;
+  z[1]=Double.POSITIVE_INFINITY;
+  for (int q=1;q<width;q++) {
+    double s;
+    while ((s=meet(f,v[k],q))<=z[k]) k--;
+    v[++k]=q;
+    z[k]=s;
+    z[k+1]=Double.POSITIVE_INFINITY;
+  }
+  k=0;
+  for (int q=0;q<width;q++) {
+    while (z[k+1]<q) k++;
+    result[q][y]=(q-v[k])*(q-v[k])+f[v[k]];
+  }
+}
+return result;
+}
+// ------------------------------------------------------------------
+private static double meet(int [] f,int p,int q)
+{ // Where the parabolas from p and q intersect
+return ((f[q]+(double)q*q)-(f[p]+(double)p*p))/(2.0*(q-p));
+}
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntConsumer;
+
+class InOrder {
+
+// An ordered completion buffer.  Jobs 0..count-1 finish in any order, but
+// their results must be used in sequence - the G code for routes in tour
+// order, say, where the biggest route is often the last to be smoothed.
+// Each job reports with ready(), and the action is run for it as soon as it
+// and every job before it are ready.  Actions run one at a time, in order,
+// on whichever thread made them possible, so need no locking of their own.
+
+private final boolean [] ready;
+private final IntConsumer action;
+private final CompletableFuture<Void> done=new CompletableFuture<Void>();
+private int next=0;            // First job whose action hasn't run
+
+InOrder(int count,IntConsumer action)
+{
+ready=new boolean[count];
+this.action=action;
+if (count==0) done.complete(null);
+}
+// ------------------------------------------------------------------
+synchronized void ready(int job)
+{
+if (done.isDone()) return;
+ready[job]=true;
+try {
+  while (next<ready.length && ready[next]) action.accept(next++);
+} catch (RuntimeException e) { done.completeExceptionally(e); return; }
+if (next==ready.length) done.complete(null);
+}
+// ------------------------------------------------------------------
+CompletableFuture<Void> done() { return done; } // After the last action
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class JobContext {
+
+// What the processing of one board shares between its Skeleton and all of
+// its routes : the heat map and distances to copper, where the board sits
+// on the machine, the smoothing settings and pool, the junctions already
+// given backlash circles, and progress.  Each Board.run() makes its own,
+// so several boards can be processed at once in the one JVM.
+
+// Made before the Skeleton, which then provides the heat map (touched()),
+// and placed (place()) before any route is smoothed or written as G code.
+
+// Every random number the job uses comes from its seed, split out in a
+// fixed order (random()), so with the REPRODUCIBLE seed the same board and
+// settings give the same G code every time, on any number of processors.
+
+final ForkJoinPool pool;          // Shares out route smoothing
+final int smoothing;              // Route2D.GREEDY, OPTIMAL or POLYLINE
+final boolean adaptive;           // Coarse then fine radius search
+final long seed;
+static final long REPRODUCIBLE=20160102L;
+
+int [][] lastTouch;               // Skeleton's heat map, ...
+DistanceField clearance;          // ... distances to its copper, ...
+int maxTouch;                     // ... its highest value anywhere, ...
+int [][] blockTouch;              // ... and in each BLOCK x BLOCK pixels
+static final int BLOCK=32;
+
+double xOrigin,yOrigin;           // Board coordinates of the TL pixel (mm)
+double xPerPixel,yPerPixel;       // Negative x if flipped
+
+final Points2D rawJunctions  =new Points2D(); // Backlash circles cut so far
+final Points2D smoothJunctions=new Points2D();
+
+private final AtomicInteger solved=new AtomicInteger(0);
+private final SplittableRandom random;
+
+JobContext(ForkJoinPool pool,int smoothing,boolean adaptive,long seed)
+{
+this.pool=pool;
+this.smoothing=smoothing;
+this.adaptive=adaptive;
+this.seed=seed;
+random=new SplittableRandom(seed);
+}
+// ------------------------------------------------------------------
+synchronized SplittableRandom random() { return random.split(); }
+// ------------------------------------------------------------------
+void touched(int [][] lastTouch,DistanceField clearance)
+{
+this.lastTouch=lastTouch;
+this.clearance=clearance;
+maxTouch=0;
+blockTouch=new int[(lastTouch.length+BLOCK-1)/BLOCK][(lastTouch[0].length+BLOCK-1)/BLOCK];
+for (int x=0;x<lastTouch.length;x++)
+  for (int y=0;y<lastTouch[0].length;y++) {
+    int touch=lastTouch[x][y];
+    if (touch>blockTouch[x/BLOCK][y/BLOCK]) blockTouch[x/BLOCK][y/BLOCK]=touch;
+    if (touch>maxTouch) maxTouch=touch;
+  }
+}
+// ------------------------------------------------------------------
+void place(double xOrigin,double yOrigin,double xPerPixel,double yPerPixel)
+{
+this.xOrigin=xOrigin;
+this.yOrigin=yOrigin;
+this.xPerPixel=xPerPixel;
+this.yPerPixel=yPerPixel;
+}
+// ------------------------------------------------------------------
+void routeSolved() { solved.incrementAndGet(); }
+int solved()       { return solved.get(); }  // Routes smoothed so far
+}
\ No newline at end of file
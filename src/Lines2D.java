@@ -29,15 +29,7 @@ public double score(PathPairOrder ppo)
 {
 // Distance between consecutive points (as mapped by the proposed
 // PathOrder of the points.) i.e. metric for travelling salesman problem  
-
-double length=0.0;
-for (int i=0;i<points.size()-1;i++) {
-  length-=Math.sqrt(Math.pow(points.get(ppo.mapping(i)).getX()-
-                             points.get(ppo.mapping(i+1)).getX(),2)+
-                    Math.pow(points.get(ppo.mapping(i)).getY()-
-                             points.get(ppo.mapping(i+1)).getY(),2));
-}
-return length; // -ve because short is good  
+return super.score(ppo); // -ve because short is good  
 }
 
 @Override
@@ -0,0 +1,234 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+import java.util.SplittableRandom;
+
+public class LocalSearch extends Optimiser {
+
+// Deterministic descent of a path to a local optimum, by 2-opt (reversing
+// a stretch, so two legs are exchanged for two others) and Or-opt (moving a
+// stretch of up to SEGMENT points elsewhere, either way round).  Moves are
+// scored by DeltaOptimisable and made in place, the first that improves
+// being taken.
+
+// Each point has a don't-look bit : once no move around it improves, it is
+// left alone until a move changes one of its own legs.  So after the first
+// pass only the neighbourhood of the last few changes is searched.
+
+// Then the best path so far is kicked, moving a random stretch anywhere
+// (an Or-3opt move, which neither of the above undoes easily), and descends
+// again from there, keeping the result if better : iterated local search,
+// KICKS times a rep.
+
+// Works on PathOrder (drills) and PathPairOrder (mill transits) alike, only
+// trying moves the seeker allows, so curves keep their ends together.  A
+// path steered by Neighbours only has moves tried that join a point to one
+// of its near neighbours, otherwise every position is tried.
+
+static final int SEGMENT=3;       // Longest stretch Or-opt moves, in units
+static final int KICK=50;         // Longest stretch a kick moves, in units
+static final int KICKS=10;        // Per rep
+static final double EPSILON=1e-9; // Relative improvement that's just rounding
+
+private DeltaOptimisable deltas;
+private int reps;            // replications to try
+private volatile int rep;    // rep we're at
+private volatile double bestScore;
+
+private PathOrder path;      // Being improved, in place
+private Neighbours near;     // Or null to try everywhere
+private int [] order;        // Its points, by position
+private int [] position;     // And the reverse
+private int unit;
+private boolean [] queued;   // Don't-look bits, inverted
+private int [] queue;        // Ring of those to look at, each at most once
+private int head,count;
+private double threshold;    // Improvement worth having
+private final Move move=new Move();
+private final int [] touched=new int[6];  // Points whose legs a move changes
+
+public LocalSearch(Optimisable optimee,Seeker seeker,int reps,
+                   SplittableRandom random) 
+{
+super(optimee,seeker,Thread.MIN_PRIORITY,random); 
+this.reps=reps;
+
+if (!(optimee instanceof DeltaOptimisable))
+  throw new IllegalArgumentException("Local search scores by moves");
+if (!(seeker instanceof PathOrder))
+  throw new IllegalArgumentException("Local search is only for paths");
+deltas=(DeltaOptimisable)optimee;
+rep=0; // Not running
+}
+// ------------------------------------------------------------------------
+public void optimise()
+{
+path=(PathOrder)start.deepCopy();
+best=path.deepCopy();
+bestScore=startScore=optimee.score(best);
+order=path.order();
+int size=order.length;
+if (reps==0 || size<4) { optimee.setSolution(best); return; }
+
+unit=path.unit();
+near=path.near;
+threshold=EPSILON*Math.abs(startScore);
+position=new int[size];
+queued=new boolean[size];
+queue=new int[size];
+
+located(0,size-1);
+for (int p=0;p<size;p++) look(p);
+
+for (rep=1;rep<=reps;rep++) {
+  for (int k=0;k<KICKS;k++) {
+    if (rep>1 || k>0) {
+      ((PathOrder)best).copyInto(path);
+      located(0,size-1);
+      kick();
+    }
+    while (count>0) {
+      if (stop) return; // Running in parallel - stop can be set outside
+      int point=queue[head];
+      head=(head+1)%size;
+      count--;
+      queued[point]=false;
+      improve(point);
+    }
+    double score=optimee.score(path);
+    if (score>bestScore) {
+      path.copyInto(best);
+      bestScore=score;
+    }
+  }
+}
+rep=0;  // Done
+optimee.setSolution(best);
+}
+// ------------------------------------------------------------------------
+private boolean improve(int point)
+{ // Makes the first improving move that changes a leg of point, if any
+int size=order.length;
+int i=position[point];
+
+if (near==null) {            // 2-opt : point to join the point at j
+  for (int j=0;j<size;j++) if (joined(i,j)) return true;
+} else 
+  for (int c=0;c<near.count() && near.get(point,c)>=0;c++) 
+    if (joined(i,position[near.get(point,c)])) return true;
+
+for (int length=unit;length<=SEGMENT*unit;length+=unit)  // Or-opt : each
+  for (int first=i-length+1;first<=i;first++) {          // stretch with
+    int last=first+length-1;                             // point in it
+    if (first<0 || last>=size) continue;
+    if (!path.allows(move.set(Move.REVERSE,first,last))) continue;
+    if (near==null) {
+      for (int to=-1;to<size;to+=unit) if (shifted(first,last,to)) return true;
+      continue;
+    }
+    for (int end=0;end<2;end++) {  // Next to a near neighbour of either end
+      int from=order[(end==0)?first:last];
+      for (int c=0;c<near.count() && near.get(from,c)>=0;c++) {
+        int j=position[near.get(from,c)];
+        if (shifted(first,last,j-1) || shifted(first,last,j)) return true;
+      }
+    }
+  }
+return false;
+}
+// ------------------------------------------------------------------------
+private boolean joined(int i,int j)
+{ // Tries the 2-opt moves that join positions i and j
+if (j>i) return tried(move.set(Move.REVERSE,i+1,j)) || 
+                tried(move.set(Move.REVERSE,i,j-1));
+if (j<i) return tried(move.set(Move.REVERSE,j+1,i)) || 
+                tried(move.set(Move.REVERSE,j,i-1));
+return false;
+}
+// ------------------------------------------------------------------------
+private boolean shifted(int first,int last,int to)
+{ // Tries the Or-opt moves of first to last to follow to
+if (to<-1 || to>=order.length || (to>=first-1 && to<=last)) return false;
+return tried(move.shift(first,last,to,false)) || 
+       tried(move.shift(first,last,to,true));
+}
+// ------------------------------------------------------------------------
+private boolean tried(Move move)
+{ // Makes move if it's allowed and improves the path
+if (move.first>=move.last && move.kind==Move.REVERSE) return false;
+if (!path.allows(move)) return false;
+if (deltas.deltaScore(path,move)<=threshold) return false;
+make(move);
+return true;
+}
+// ------------------------------------------------------------------------
+private void make(Move move)
+{ // And wakes the points at the ends of the legs it changes
+int size=order.length;
+int lo=move.first;
+int hi=move.last;
+int ends=0;
+touched[ends++]=lo-1;
+touched[ends++]=lo;
+touched[ends++]=hi;
+touched[ends++]=hi+1;
+if (move.kind!=Move.REVERSE) {
+  touched[ends++]=move.to;
+  touched[ends++]=move.to+1;
+  lo=Math.min(lo,move.to+1);
+  hi=Math.max(hi,move.to);
+}
+for (int e=0;e<ends;e++)   // Positions to points, before they move
+  touched[e]=(touched[e]>=0 && touched[e]<size)?order[touched[e]]:(-1);
+
+path.makeMove(move);
+located(lo,hi);
+for (int e=0;e<ends;e++) if (touched[e]>=0) look(touched[e]);
+}
+// ------------------------------------------------------------------------
+private void kick()
+{ // A random stretch, moved anywhere, either way round
+int units=order.length/unit;
+int length=1+random.nextInt(Math.min(KICK,units-1));
+int first=random.nextInt(units-length+1);
+int to;
+do { to=random.nextInt(units+1)-1; } while (to>=first-1 && to<first+length);
+
+make(move.shift(unit*first,unit*(first+length)-1,unit*(to+1)-1,random.nextBoolean()));
+}
+// ------------------------------------------------------------------------
+private void look(int point)
+{ // Clears its don't-look bit
+if (queued[point]) return;
+queued[point]=true;
+queue[(head+count)%queue.length]=point;
+count++;
+}
+// ------------------------------------------------------------------------
+private void located(int lo,int hi)
+  { for (int p=lo;p<=hi;p++) position[order[p]]=p; }
+// ------------------------------------------------------------------------
+@Override
+public double getProgress() { return (double)(rep)/(double)reps; }
+// -------------------------------------------------------------------------
+public double getFraction() { return bestScore/startScore; }
+// -------------------------------------------------------------------------
+public boolean running() { return (rep!=0); }
+// -------------------------------------------------------------------------
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+public abstract class MovableSeeker extends Seeker {
+
+// A Seeker whose moves can be described (in a Move) and so scored, made
+// in place and taken back, which an optimiser can explore without copying.
+// Optimisers test for it, and fall back on neighbour() for other Seekers.
+
+public abstract boolean proposeMove(Move move);
+// As neighbour(), but the perturbation is described (in move) rather than
+// made, so an optimiser can score it (see DeltaOptimisable) before deciding
+// whether it is worth making.  false if no move can be found.
+
+public Move proposeMove() 
+  { Move move=new Move(); return proposeMove(move)?move:null; }
+
+public abstract void makeMove(Move move);
+public abstract void undoMove(Move move);
+// Make a proposed move in place, or take it back (the last move made).
+
+public abstract void copyInto(Seeker into);
+// Overwrites another Seeker of the same kind and size with this one, e.g.
+// to keep the best so far without allocating.
+
+public MovableSeeker apply(Move move) 
+  { MovableSeeker moved=(MovableSeeker)deepCopy(); moved.makeMove(move); return moved; }
+// The Seeker a proposed move makes of this one, which is left as it is.
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+class Move {
+
+// A small change to a Seeker, described rather than made : see
+// MovableSeeker.proposeMove() and DeltaOptimisable.  An optimiser can then learn
+// what the change would do to the score before paying to make it.
+
+// Moves on a path of positions 0..n-1 (PathOrder and its kind) :
+static final int REVERSE=0;  // Reverse positions first to last.  None if
+                             // first>last, as PathOrder.mutate() has it.
+static final int ROTATE=1;   // Start at position first, wrapping round
+static final int SHIFT=2;    // Move positions first to last to follow 
+static final int SHIFT_REVERSED=3; // position to (or to the front for -1),
+                             // the latter travelled the other way.  to is 
+                             // outside first-1 to last.
+
+int kind;
+int first,last;
+int to;                      // SHIFTs only
+
+Move() {}     // To be set, so one Move can be reused for each proposal
+Move(int kind,int first,int last) { set(kind,first,last); }
+// ------------------------------------------------------------------
+Move set(int kind,int first,int last)
+{
+this.kind=kind;
+this.first=first;
+this.last=last;
+return this;
+}
+// ------------------------------------------------------------------
+Move shift(int first,int last,int to,boolean reversed)
+{
+set(reversed?SHIFT_REVERSED:SHIFT,first,last);
+this.to=to;
+return this;
+}
+// ------------------------------------------------------------------
+@Override
+public String toString() 
+{ 
+if (kind>=SHIFT) return ((kind==SHIFT)?"Shift ":"Shift reversed ")+first+","+last+" to "+to;
+return ((kind==REVERSE)?"Reverse ":"Rotate ")+first+","+last; 
+}
+}
\ No newline at end of file
@@ -0,0 +1,114 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+import java.util.Arrays;
+
+class Neighbours {
+
+// The k nearest of a set of points to each of them, so an optimiser can
+// propose moves joining a point to one near it : on a large board nearly
+// every move joining two random points is a long leg, and rejected.
+
+// Found through a grid of buckets, about two points to a bucket, searching
+// rings of buckets outwards from each point's own until no bucket left
+// could hold anything nearer than the k found.  So about linear in the
+// number of points, where comparing every pair is quadratic.
+
+// Points in the same unit (the two ends of a curve, for PathPairOrder) are
+// not counted as each other's neighbours.
+
+static final int STEERING=10; // Kept for the optimisers to steer by
+
+private final int k;
+private final int [] near;     // k per point, nearest first, -1 past the last
+
+Neighbours(Points2D points,int k,int unit)
+{
+this.k=k;
+int size=points.size();
+near=new int[size*k];
+Arrays.fill(near,-1);
+if (size==0) return;
+
+int minX=Integer.MAX_VALUE,minY=Integer.MAX_VALUE;
+int maxX=Integer.MIN_VALUE,maxY=Integer.MIN_VALUE;
+for (int i=0;i<size;i++) {
+  minX=Math.min(minX,points.getX(i));
+  minY=Math.min(minY,points.getY(i));
+  maxX=Math.max(maxX,points.getX(i));
+  maxY=Math.max(maxY,points.getY(i));
+}
+int cell=Math.max(1,(int)Math.sqrt(2.0*(maxX-minX+1)*(maxY-minY+1)/size));
+int columns=(maxX-minX)/cell+1;
+int rows=(maxY-minY)/cell+1;
+
+int [] bucket=new int[size];       // Of each point
+int [] first=new int[columns*rows+1];  // Points of bucket b are members 
+int [] members=new int[size];      // first[b] to first[b+1]-1
+for (int i=0;i<size;i++) {
+  bucket[i]=((points.getY(i)-minY)/cell)*columns+(points.getX(i)-minX)/cell;
+  first[bucket[i]+1]++;
+}
+for (int b=0;b<columns*rows;b++) first[b+1]+=first[b];
+int [] fill=Arrays.copyOf(first,first.length);
+for (int i=0;i<size;i++) members[fill[bucket[i]]++]=i;
+
+long [] distance=new long[k];
+for (int a=0;a<size;a++) {
+  int found=0;
+  int column=bucket[a]%columns;
+  int row=bucket[a]/columns;
+  for (int ring=0;;ring++) {
+    for (int r=row-ring;r<=row+ring;r++) {
+      if (r<0 || r>=rows) continue;
+      int step=(r==row-ring || r==row+ring)?1:(2*ring);  // Ring's edge only
+      for (int c=column-ring;c<=column+ring;c+=Math.max(1,step)) {
+        if (c<0 || c>=columns) continue;
+        int b=r*columns+c;
+        for (int m=first[b];m<first[b+1];m++) 
+          found=insert(a,members[m],points,unit,distance,found);
+      }
+    }
+    long reach=(long)ring*cell;      // Anything further out is at least this
+    if (found==k && distance[k-1]<=reach*reach) break;
+    if (ring>=Math.max(columns,rows)) break;
+  }
+}
+}
+// ------------------------------------------------------------------
+private int insert(int a,int b,Points2D points,int unit,long [] distance,int found)
+{ // Into a's list, in order, if near enough.  Returns how many it holds.
+if (b/unit==a/unit) return found;
+long dx=points.getX(a)-points.getX(b);
+long dy=points.getY(a)-points.getY(b);
+long d=dx*dx+dy*dy;
+if (found==k && d>=distance[k-1]) return found;
+int i=(found<k)?found++:(k-1);
+for (;i>0 && distance[i-1]>d;i--) {
+  distance[i]=distance[i-1];
+  near[a*k+i]=near[a*k+i-1];
+}
+distance[i]=d;
+near[a*k+i]=b;
+return found;
+}
+// ------------------------------------------------------------------
+int count()             { return k; }
+int get(int point,int i) { return near[point*k+i]; }  // -1 if fewer than i+1
+}
\ No newline at end of file
@@ -35,4 +35,9 @@ public interface Optimisable {
   public Seeker getSolution(Seeker s);
   // Gets a seeker solution from the Optimee if we want to use, or
   // improve, a previous optimisation.
+
+  public default void prepare() { }
+  // Called as an optimiser is given the Optimee, before any scoring : the
+  // place to build, once and whole, anything score() reads, since scoring
+  // may then come from several threads.  Nothing, if not wanted.
 }
\ No newline at end of file
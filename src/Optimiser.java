@@ -17,7 +17,7 @@ Copyright (C) 2016  S Combes
 */
 package cisolate;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
 public abstract class Optimiser implements Runnable  {
 
@@ -27,13 +27,19 @@ public Seeker best;
 protected volatile boolean stop = false;
 protected double startScore;
 
-protected static Random random = new Random();
+protected final SplittableRandom random; // Its own, to split for any it 
+                                         // delegates to
 
 // ------------------------------------------------------------------------
-public Optimiser(Optimisable optimee,Seeker seeker,int priority) 
+public Optimiser(Optimisable optimee,Seeker seeker,int priority,
+                 SplittableRandom random) 
 {
+if (random==null)  // Else unseeded, and the result not reproducible
+  throw new IllegalArgumentException("Optimiser needs random numbers");
+this.random=random;
 this.optimee=optimee;
 this.start=seeker.deepCopy();  // Defensive copy
+optimee.prepare();
 stop=false;
 }
 // ------------------------------------------------------------------------
@@ -52,4 +58,7 @@ public void gracefulExit() { stop=true; }
 abstract void optimise();
 public abstract double getFraction();
 public double getProgress() { return -1.0; } // Not supported unless overridden
+public abstract boolean running();
+public boolean ranToLimit() { return false; } // Used all reps, not settled,
+                                              // if it can tell (once done)
 }
\ No newline at end of file
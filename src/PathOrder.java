@@ -17,15 +17,17 @@ Copyright (C) 2016  S Combes
 */
 package cisolate;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
-public class PathOrder extends Seeker {   
+public class PathOrder extends MovableSeeker {   
 // A mapping of coordinates to their order in a particular path (n[.])
 // Does not contain the coordinates themselves, just the order they should
 // be mapped to.  
 
 protected int [] n;               
-protected static Random random = new Random();
+protected Neighbours near;      // If set, most reversals join near points
+protected int [] position;      // Of each point in n, kept while near is set
+protected SplittableRandom random; // None until set : each walker its own
 static String nL = System.getProperty("line.separator");
 
 PathOrder(int moves) { this(moves,false); }
@@ -41,42 +43,165 @@ PathOrder(PathOrder p) // copy constructor
 {
 n = new int[p.n.length];
 System.arraycopy(p.n,0,n,0,n.length);
+steered(p);
+}
+// ---------------------------------------------------------------------------
+void steer(Neighbours near)
+{ // Most reversals proposed from now on join a point to one of its near
+  // neighbours, so are likely to be worth having (copies follow suit)
+this.near=near;
+position=new int[n.length];
+located(0,n.length-1);
+}
+// ---------------------------------------------------------------------------
+protected void steered(PathOrder p)
+{ // As p is, for a copy - but not its random numbers, which stay p's
+near=p.near;
+if (p.position!=null) position=p.position.clone();
 }
 // ---------------------------------------------------------------------------
 public int mapping(int nth) { return n[nth];} 
+int [] order()              { return n; }     // For scoring : don't change
+int unit()                  { return 1; }     // Smallest stretch that moves
+@Override
+public int size()           { return n.length; }
+@Override
+public void setRandom(SplittableRandom random) { this.random=random; }
+// ---------------------------------------------------------------------------
+public boolean allows(Move move)
+{ // Whether a move keeps the path valid : only whole units move
+int unit=unit();
+if (move.kind==Move.ROTATE) return (move.first%unit==0);
+boolean whole=(move.first%unit==0 && (move.last+1)%unit==0);
+if (move.kind==Move.REVERSE) return whole;
+return whole && ((move.to+1)%unit==0);
+}
 // ---------------------------------------------------------------------------
 public PathOrder cycle() 
 { // Suggests a mutated form by randomly starting at a new point (still in order)
-
-int start;
-
-PathOrder candidate=new PathOrder(n.length,true);
-
-start=random.nextInt(n.length); 
-
-System.arraycopy(n,start,candidate.n,0,n.length-start);
-System.arraycopy(n,0,candidate.n,n.length-start,start);
-
-return candidate;
+return apply(new Move(Move.ROTATE,random.nextInt(n.length),0));
 }
 // ---------------------------------------------------------------------------
 public PathOrder mutate() // Suggests a mutated form by swapping a random segment
 {  // Could pick start or stop randomly - will favour shorter segments
 // or pick start and length for uniform distribution of lengths
-
-int start,stop;
-
-PathOrder candidate=new PathOrder(n.length,true);
-
-start=random.nextInt(n.length); 
-stop=random.nextInt(n.length); 
-
-System.arraycopy(n,0,candidate.n,0,start);
-for (int i=start;i<(stop+1);i++)
-  candidate.n[i]=n[stop+(start-i)];
-System.arraycopy(n,stop+1,candidate.n,stop+1,n.length-(stop+1));
-
-return candidate;
+return apply(reversal(new Move()));
+}
+// ---------------------------------------------------------------------------
+protected Move reversal(Move move)
+{
+if (near!=null && random.nextInt(10)!=0 && joining(move)) return move;
+int start=random.nextInt(n.length); 
+int stop=random.nextInt(n.length); 
+return move.set(Move.REVERSE,start,stop);
+}
+// ---------------------------------------------------------------------------
+protected boolean joining(Move move)
+{ // A reversal that puts a random point next to one of its near 
+  // neighbours, either way round, if one's allowed
+int i=random.nextInt(n.length);
+int j=near.get(n[i],random.nextInt(near.count()));
+if (j<0) return false;
+j=position[j];
+
+boolean after=random.nextBoolean();  // Try i's leg out or in first
+for (int t=0;t<2;t++,after=!after) {
+  if (j>i) move.set(Move.REVERSE,after?i+1:i,after?j:j-1);
+  else     move.set(Move.REVERSE,after?j+1:j,after?i:i-1);
+  if (move.first<move.last && allows(move)) return true;
+}
+return false;
+}
+// ---------------------------------------------------------------------------
+@Override
+public boolean proposeMove(Move move) 
+{ // As neighbour() chooses
+if (random.nextInt(10)!=0)  reversal(move);
+else                        move.set(Move.ROTATE,random.nextInt(n.length),0);
+return true;
+}
+// ---------------------------------------------------------------------------
+@Override
+public PathOrder apply(Move move) { return (PathOrder)super.apply(move); }
+// ---------------------------------------------------------------------------
+@Override
+public void makeMove(Move move)
+{
+switch (move.kind) {
+  case Move.ROTATE:  rotate(move.first);              break;
+  case Move.REVERSE: reverse(move.first,move.last);   break;
+  default: shift(move.first,move.last,move.to,(move.kind==Move.SHIFT_REVERSED));
+}
+moved(move);
+}
+// ---------------------------------------------------------------------------
+@Override
+public void undoMove(Move move)
+{ // A reversal undoes itself, a shift is shifted back
+int length=move.last-move.first+1;
+boolean reversed=(move.kind==Move.SHIFT_REVERSED);
+switch (move.kind) {
+  case Move.ROTATE:  rotate((n.length-move.first)%n.length); break;
+  case Move.REVERSE: reverse(move.first,move.last);          break;
+  default: 
+    if (move.to>move.last) shift(move.to-length+1,move.to,move.first-1,reversed);
+    else                   shift(move.to+1,move.to+length,move.last,reversed);
+}
+moved(move);
+}
+// ---------------------------------------------------------------------------
+private void moved(Move move)
+{ // Keeps position up to date over the stretch a move (or its undoing) 
+  // rearranges
+if (position==null) return;
+switch (move.kind) {
+  case Move.ROTATE:  located(0,n.length-1);         break;
+  case Move.REVERSE: located(move.first,move.last); break;
+  default: located(Math.min(move.first,move.to+1),Math.max(move.last,move.to));
+}
+}
+// ---------------------------------------------------------------------------
+private void located(int lo,int hi)
+  { for (int p=lo;p<=hi;p++) position[n[p]]=p; }
+// ---------------------------------------------------------------------------
+private void reverse(int start,int stop)
+{ // In place.  Nothing if start>stop.
+for (;start<stop;start++,stop--) {
+  int swap=n[start];
+  n[start]=n[stop];
+  n[stop]=swap;
+}
+}
+// ---------------------------------------------------------------------------
+private void shift(int first,int last,int to,boolean reversed)
+{ // In place : reversing the stretch and what it passes over together, then
+  // each back again (the stretch only if it isn't to be left reversed)
+int length=last-first+1;
+if (to>last) {
+  reverse(first,to);
+  reverse(first,to-length);
+  if (!reversed) reverse(to-length+1,to);
+} else {
+  reverse(to+1,last);
+  if (!reversed) reverse(to+1,to+length);
+  reverse(to+length+1,last);
+}
+}
+// ---------------------------------------------------------------------------
+private void rotate(int start)
+{ // In place, so that start comes first : reversing both parts, then all
+if (start==0) return;
+reverse(0,start-1);
+reverse(start,n.length-1);
+reverse(0,n.length-1);
+}
+// ---------------------------------------------------------------------------
+@Override
+public void copyInto(Seeker into) 
+{ 
+PathOrder path=(PathOrder)into;
+System.arraycopy(n,0,path.n,0,n.length); 
+if (path.position!=null) path.located(0,n.length-1);
 }
 // ---------------------------------------------------------------------------
 public String toString() {
@@ -88,11 +213,7 @@ for (int i=0;i<n.length;i++)
 return sb.toString();
 }
 // ---------------------------------------------------------------------------
-public PathOrder neighbour() 
-{ 
-if (random.nextInt(10)!=0)  return mutate();  
-else                        return cycle();
-}
+public PathOrder neighbour() { return apply(proposeMove()); }  // A copy
 // ---------------------------------------------------------------------------
 public PathOrder deepCopy()         { return new PathOrder(this); }
 // ---------------------------------------------------------------------------
@@ -33,42 +33,48 @@ PathPairOrder(int moves,boolean empty) { super(moves,empty); }
 PathPairOrder(PathPairOrder p) { 
 super(p.n.length,true); 
 System.arraycopy(p.n,0,n,0,n.length);
+steered(p);
 }
 // -------------------------------------------------------------------
+@Override
+int unit() { return 2; }  // Curves keep their ends together
+// -------------------------------------------------------------------
 public PathPairOrder cycle() 
 { // Suggests a mutated form by randomly starting at a new point (still in order)
-
-int start;
-
-PathPairOrder candidate=new PathPairOrder(n.length,true);
-
-start=2*random.nextInt(n.length/2); // constrains to evens
-
-System.arraycopy(n,start,candidate.n,0,n.length-start);
-System.arraycopy(n,0,candidate.n,n.length-start,start);
-
-return candidate;
+return apply(rotation(new Move()));
 }
 // -------------------------------------------------------------------
+private Move rotation(Move move) 
+{ return move.set(Move.ROTATE,2*random.nextInt(n.length/2),0); } // constrains to evens
+// -------------------------------------------------------------------
 public PathPairOrder mutate() 
 {  // Suggests a mutated form by swapping a random segment. 
-
+return apply(reversal(new Move()));
+}
+// -------------------------------------------------------------------
+@Override
+protected Move reversal(Move move)
+{ // Whole pairs, so curves keep their ends together
+if (near!=null && random.nextInt(10)!=0 && joining(move)) return move;
 int start,stop;
-
-PathPairOrder candidate=new PathPairOrder(n.length,true);
-
 do {
   start=2*random.nextInt(n.length/2);              // start is even 
   stop=(2*random.nextInt(n.length/2)+1)%n.length;  // stop is odd 
 } while (start > stop);                            // enforce start < stop
-
-System.arraycopy(n,0,candidate.n,0,start);
-for (int i=start;i<(stop+1);i++)
-  candidate.n[i]=n[stop+(start-i)];
-System.arraycopy(n,stop+1,candidate.n,stop+1,n.length-(stop+1));
-
-return candidate;
+return move.set(Move.REVERSE,start,stop);
+}
+// -------------------------------------------------------------------
+@Override
+public boolean proposeMove(Move move) 
+{
+int r=random.nextInt(10);
+if (r!=0)  reversal(move);
+else       rotation(move);
+return true;
 }
+// -------------------------------------------------------------------
+@Override
+public PathPairOrder apply(Move move) { return (PathPairOrder)super.apply(move); }
 // ---------------------------------------------------------------------------
 @Override
 public String toString() {
@@ -82,12 +88,7 @@ return sb.toString();
 }
 // ---------------------------------------------------------------------------
 @Override
-public PathPairOrder neighbour() 
-{ 
-int r=random.nextInt(10);
-if (r!=0)  return mutate();  
-else       return cycle();
-}
+public PathPairOrder neighbour() { return apply(proposeMove()); }
 // ---------------------------------------------------------------------------
 @Override
 public PathPairOrder deepCopy()         { return new PathPairOrder(this); }
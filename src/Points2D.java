@@ -21,7 +21,7 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Iterator;
 
-class Points2D implements Iterable<Point2D>,Optimisable  {
+class Points2D implements Iterable<Point2D>,DeltaOptimisable  {
 
 // An extensible, iterable list of 2D points with no connotation they
 // are consecutive etc.
@@ -31,11 +31,20 @@ class Points2D implements Iterable<Point2D>,Optimisable  {
 protected List<Point2D> points;
 protected PathOrder optimum;
 
+// Packed copies of the coordinates for scoring paths, and for up to MATRIX
+// points a table of the distances between them.  prepare() builds them
+// whole, as the points are given to an optimiser, and only then publishes
+// them, so scorers on any thread see all of it or none.  Any change to the
+// points drops them.  Scored unprepared (as the starting tours are, for the
+// log), just the coordinates are packed, and kept until prepare().
+private volatile Packed packed;
+static final int MATRIX=1024;  // 4 MB of table
+
 Points2D()  {  points=new ArrayList<Point2D>();  }
 
-public void add(Point2D p)     { points.add(p);  }
+public void add(Point2D p)     { points.add(p); packed=null; }
 
-public void remove(int r)      { points.remove(r); }
+public void remove(int r)      { points.remove(r); packed=null; }
 
 public String toString() { return ("Set of "+points.size()+" points"); }
 
@@ -61,18 +70,112 @@ public double score(Seeker s)
 // Distance between consecutive points (as mapped by the proposed
 // PathOrder of the points.) i.e. metric for travelling salesman problem  
 
-PathOrder po=(PathOrder)s;
+int [] order=((PathOrder)s).order();
+Packed p=packed();
 
 double length=0.0;
-for (int i=0;i<points.size()-1;i++) {
-  length-=Math.sqrt(Math.pow(points.get(po.mapping(i)).getX()-
-                             points.get(po.mapping(i+1)).getX(),2)+
-                    Math.pow(points.get(po.mapping(i)).getY()-
-                             points.get(po.mapping(i+1)).getY(),2));
-}
+for (int i=0;i<order.length-1;i++) 
+  length-=p.distance(order[i],order[i+1]);
 return length; // -ve because short is good
 }
 
+@Override
+public double deltaScore(Seeker s,Move move)
+{
+// Change in score() that a move of the PathOrder would make.  Only the
+// legs at the ends of the stretch moved change : a reversed stretch is 
+// travelled backwards, the same length.
+
+PathOrder po=(PathOrder)s;
+Packed p=packed();
+int end=points.size()-1;
+int first=move.first;
+
+if (move.kind==Move.ROTATE) { // Lose the leg into first, gain end to start
+  if (first==0) return 0.0;
+  return p.leg(po,first-1,first)-p.leg(po,end,0);
+}
+int last=move.last;
+if (move.kind!=Move.REVERSE) return shiftScore(p,po,move);
+if (first>=last) return 0.0;
+double change=0.0;
+if (first>0)  change+=p.leg(po,first-1,first)-p.leg(po,first-1,last);
+if (last<end) change+=p.leg(po,last,last+1)  -p.leg(po,first,last+1);
+return change;
+}
+
+private double shiftScore(Packed p,PathOrder po,Move move)
+{ // The legs into and out of the stretch are lost, and the one it is put 
+  // into.  The gap left is closed and the stretch joined in its new place.
+int end=points.size()-1;
+int first=move.first;
+int last=move.last;
+int to=move.to;
+int head=(move.kind==Move.SHIFT)?first:last;  // As it will be travelled
+int tail=(move.kind==Move.SHIFT)?last:first;
+
+double change=0.0;
+if (first>0)             change+=p.leg(po,first-1,first);
+if (last<end)            change+=p.leg(po,last,last+1);
+if (first>0 && last<end) change-=p.leg(po,first-1,last+1);
+if (to>=0 && to<end)     change+=p.leg(po,to,to+1);
+if (to>=0)               change-=p.leg(po,to,head);
+if (to<end)              change-=p.leg(po,tail,to+1);
+return change;
+}
+
+@Override
+public void prepare() { packed=new Packed(points,true); }
+
+private Packed packed()
+{
+Packed p=packed;
+if (p==null) packed=p=new Packed(points,false); // O(n), not the table's O(n^2)
+return p;
+}
+
+private static final class Packed {
+// Immutable once made, so safe to share however it is reached
+
+final int [] xs,ys;
+final float [] matrix;  // Or null, unprepared or above MATRIX points
+
+Packed(List<Point2D> points,boolean tabled)
+{
+int size=points.size();
+xs=new int[size];
+ys=new int[size];
+for (int i=0;i<size;i++) {
+  xs[i]=points.get(i).getX();
+  ys[i]=points.get(i).getY();
+}
+if (!tabled || size>MATRIX) { matrix=null; return; }
+
+float [] table=new float[size*size];
+for (int a=0;a<size;a++)
+  for (int b=0;b<size;b++)
+    table[a*size+b]=(float)root(a,b);
+matrix=table;
+}
+
+double leg(PathOrder po,int i,int j)
+{ // Between the points at positions i and j of the path
+return distance(po.mapping(i),po.mapping(j));
+}
+
+double distance(int a,int b)
+{ // Between points a and b
+return (matrix!=null)?matrix[a*xs.length+b]:root(a,b);
+}
+
+private double root(int a,int b)
+{
+int dx=xs[a]-xs[b];
+int dy=ys[a]-ys[b];
+return Math.sqrt((double)(dx*dx+dy*dy));
+}
+}
+
 @Override
 public void setSolution(Seeker po) { optimum=(PathOrder)po; }
 
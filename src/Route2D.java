@@ -19,8 +19,10 @@ package cisolate;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.awt.*;
 import java.util.Locale;
+import java.util.concurrent.RecursiveAction;
 
 // Despite title, this Class is not generic - it is closely bound to
 // Cisolate, because the 'heat map' input is unlikely to be produced elsewhere.
@@ -33,11 +35,7 @@ class Route2D extends Points2D implements Runnable
 {
 // A group of 2D points ordered as a route, i.e. with an explicit transit ordering
 
-static int [][] lastTouch;
-static double xOrigin;
-static double yOrigin;
-static double xPerPixel;
-static double yPerPixel;
+final JobContext job;             // Heat map, placing, settings, progress
 static String fstr="%.3f";
 
 ControlPoints cp;
@@ -47,36 +45,72 @@ static final int FLEXPERCENT=10;
 static final double FLEX=(100.0+FLEXPERCENT)/100.0;
 private volatile boolean stop = false;
 static final String nL = System.getProperty("line.separator");
-static int solved=0;
-static Points2D rawJunctions;
-static Points2D smoothJunctions;
+static final int MARGIN=16;       // Pixels around a route for its maxTouch
+static final int SLACK=4;         // Spare arc pixels, beyond the bound
+static final int SECTION=8;       // Pixels between corridor cross sections
+static final int DEEP=4;          // Squared depth into copper no arc reaches
+static final double MAXTURN=-0.7; // Cosine of sharpest turn allowed in a chain
+static final int GREEDY=0;        // Smoothing methods : repeated grouping scan,
+static final int OPTIMAL=1;       // or fewest arcs by shortest path,
+static final int POLYLINE=2;      // or just lines (fast, more G code)
+static final int COARSE=3;        // Rungs between coarse radii (x2.2)
+static final double STRAIGHT=0.5; // Sagitta (pixels) of a ~straight arc
+static final int PARALLEL=256;    // Routes with this many controls share out
+                                  // their fitting on the job's pool
+static final int GRAIN=16;        // Pairs fitted per fork-join task
+private final List<Integer> joins=new ArrayList<Integer>(); // Where chained
 
-public static void initialise(int [][] slastTouch,
-          double sxOrigin,double syOrigin,
-          double sxPerPixel,double syPerPixel)
-{
-lastTouch=slastTouch;
-xOrigin=sxOrigin;
-yOrigin=syOrigin;
-xPerPixel=sxPerPixel;
-yPerPixel=syPerPixel;
-rawJunctions   =new Points2D();
-smoothJunctions=new Points2D();
-solved=0;
+Route2D(JobContext job)   { super(); this.job=job; }
+Route2D()                 { this((JobContext)null); } // Just points, not to smooth
+Route2D(Points2D points)  { this((JobContext)null); this.points=points.points; }
+
+// ------------------------------------------------------------------
+void append(Route2D route,boolean reversed)
+{ // Continues this route along another, which must start (or, if reversed,
+  // end) where this one ends.  The join is remembered so that it remains a
+  // control point : smoothing must not cut the corner off a junction.
+
+if (size()>0) joins.add(size()-1);
+for (int i=(size()>0)?1:0;i<route.size();i++) 
+  add(route.get(reversed?(route.size()-1-i):i));
 }
+// ------------------------------------------------------------------
+boolean turnsBack(Route2D route,boolean reversed)
+{ // Would continuing along route (as in append()) double back on ourselves?
+  // Directions are taken over a few pixels either side of the join.
 
-Route2D(Points2D points)  { super(); this.points=points.points; }
-Route2D()                 { super(); }
+int k=Math.min(4,Math.min(size(),route.size())-1);
+if (k<1) return true;
 
+int inX=getX(size()-1)-getX(size()-1-k);
+int inY=getY(size()-1)-getY(size()-1-k);
+int outX=route.getX(reversed?(route.size()-1-k):k)-route.getX(reversed?(route.size()-1):0);
+int outY=route.getY(reversed?(route.size()-1-k):k)-route.getY(reversed?(route.size()-1):0);
+
+return ((inX*outX+inY*outY) < 
+        MAXTURN*dlength(0,0,inX,inY)*dlength(0,0,outX,outY));
+}
 // ------------------------------------------------------------------
 private double dlength(int x1,int y1,int x2,int y2)
 { return Math.sqrt((double)((x1-x2)*(x1-x2)+(y1-y2)*(y1-y2))); }
 // ---------------------------------------------------------------
 public void gracefulExit() { stop = true; }
 // ---------------------------------------------------------------
-public static void resetCount() { solved=0; }
-// ---------------------------------------------------------------
-public static int noSolved() { return solved; }
+double cost()
+{ // Rough relative cost of run(), for scheduling.  Control points are laid
+  // every minTouch()/2 pixels or so (see ControlPoints), and the grouping
+  // work grows about as their square.  Lines alone are linear in the route.
+
+if (job.smoothing==POLYLINE || job.lastTouch==null) return size();
+double controls=1.0;
+for (int i=0;i<size();i++) {
+  int x=getX(i),y=getY(i);
+  int touch=Math.min(Math.min(job.lastTouch[x-1][y],job.lastTouch[x+1][y]),
+                     Math.min(job.lastTouch[x][y-1],job.lastTouch[x][y+1]));
+  controls+=2.0/Math.max(1,touch);
+}
+return controls*controls;
+}
 // ------------------------------------------------------------------
 @Override
 public void run() 
@@ -103,61 +137,87 @@ stop=false;
 Thread t = Thread.currentThread();  
 t.setPriority(Thread.MIN_PRIORITY);  
 
-if (lastTouch==null) { 
+if (job==null || job.lastTouch==null) { 
   System.out.println("Error : last touch unset in Route2D");
   System.exit(0);
 }
 cp=new ControlPoints();
+if (job.smoothing==POLYLINE) {
+  if (cp.simplify()) job.routeSolved();
+  return;
+}
+boolean parallel=(job.pool!=null && cp.getPoints()>=PARALLEL);
 
 // First optimise each arc between a pair of control points individually 
+if (parallel) cp.prefetch(1,true);
 for (int i=0;i<cp.getArcs();i++) {
   if (stop) return;
-  if (cp.optimiseArc(cp.control.get(i),cp.control.get(i+1))) {
-    cp.arcScore.set(i,cp.bestScore);
-    cp.arcRadius.set(i,cp.bestRadius);
+  if (cp.optimiseArc(cp.control[i],cp.control[i+1],true)) {
+    cp.arcScore[i]=cp.bestScore;
+    cp.arcRadius[i]=cp.bestRadius;
   } else { // Couldn't find an arc, but there is one allowable case - 
     // diagonally across a 2x2 square where other diagonal has copper
  
-    if (Math.abs(cp.control.getX(i)-cp.control.getX(i+1))!=1 && 
-        Math.abs(cp.control.getY(i)-cp.control.getY(i+1))!=1) 
+    if (Math.abs(cp.control[i].getX()-cp.control[i+1].getX())!=1 && 
+        Math.abs(cp.control[i].getY()-cp.control[i+1].getY())!=1) 
       throw new RuntimeException("Can't make curve");
 
-    cp.arcScore.set(i,0.0);
-    cp.arcRadius.set(i,MAXRADIUS); // ~Str line  
+    cp.arcScore[i]=0.0;
+    cp.arcRadius[i]=MAXRADIUS; // ~Str line  
   }
 }
+cp.corridors();
+
+if (job.smoothing==OPTIMAL) {
+  if (cp.segment(parallel)) {
+    cp.compact();
+    job.routeSolved();
+  }
+  return;
+}
 
 // See if we can optimise better by grouping
 // See how big a group of points we can reasonably make, starting with all
 // of them. This is On^2.  Works OK, but slow (~minute) if there is one 
-// big route (typically the board outline falls in this category)
+// big route (typically the board outline falls in this category), so
+// groups wider than the corridor allows are skipped (see corridors())
 
 boolean change;
 do {
   if (stop) return;
   change=false;
-  for (int group=cp.getPoints()-1;group>1;group--) {
-    for (int start=0;start<(cp.getPoints()-group);start++) {
+  for (int group=cp.widestSpan();group>1;group--) {
+    if (parallel) cp.prefetch(group,false);
+    int start=0;
+    int end=cp.ahead(start,group);
+    while (end>=0) {
       if (stop) return;
-      if (cp.optimiseArc(cp.control.get(start),cp.control.get(start+group))) {
+      if (cp.within(start,end) && 
+          cp.optimiseArc(cp.control[start],cp.control[end],false)) {
         if (stop) return;
 
         double previousScore=0.0;
-        for (int j=start;j<(start+group);j++) 
-          previousScore+=cp.arcScore.get(j);
+        for (int j=start;j!=end;j=cp.next[j]) 
+          previousScore+=cp.arcScore[j];
 
         if ((cp.bestScore*FLEX) > previousScore) {
  
-          cp.replace(start,group,cp.bestRadius,previousScore); 
+          cp.replace(start,end,cp.bestRadius,previousScore); 
           // Use previous score for new arc so we don't compound cuts
           change=true;
+          start=end;  // The next along, now
+          end=cp.ahead(start,group);
+          continue;
         }
       }
+      start=cp.next[start];
+      end=cp.next[end];
     }
   }
 } while (change);
 //System.out.print(" +"); // Show progress
-solved++;
+cp.compact();
+job.routeSolved();
 return;
 }
 // ------------------------------------------------------------------
@@ -185,35 +245,35 @@ if (reversed) {
 if (!attached) {
   result.append("G00 Z"+millTransit+nL);
   result.append("G00 X"+
-        String.format(Locale.US,fstr,  xOrigin+xPerPixel*cp.control.getX(start))+
-   " Y"+String.format(Locale.US,fstr,-(yOrigin+yPerPixel*cp.control.getY(start)))+nL);
+        String.format(Locale.US,fstr,  job.xOrigin+job.xPerPixel*cp.control[start].getX())+
+   " Y"+String.format(Locale.US,fstr,-(job.yOrigin+job.yPerPixel*cp.control[start].getY()))+nL);
   result.append("F"+plungeRate+nL);
   result.append(String.format(Locale.US,"G01 Z"+fstr+"%s",millPlunge,nL));
   result.append("F"+millRate+nL);
 }
 
 for (int i=start;i!=end;i+=inc) {
-  int xx=cp.control.getX(i);
-  int yy=cp.control.getY(i);
+  int xx=cp.control[i].getX();
+  int yy=cp.control[i].getY();
   
   if (backlash && skeleton.isJunction(xx,yy) && 
-      !smoothJunctions.contains(xx,yy)) {
-    smoothJunctions.add(new Point2D(xx,yy));
+      !job.smoothJunctions.contains(xx,yy)) {
+    job.smoothJunctions.add(new Point2D(xx,yy));
     result.append(addBacklashTolerance(xx,yy,radius,
               millRate,plungeRate,millPlunge,millTransit));
   }
 
   int myArc=i+(reversed?-1:0);
-  if (Math.abs(cp.arcRadius.get(myArc))>=MAXRADIUS) {
+  if (Math.abs(cp.arcRadius[myArc])>=MAXRADIUS) {
     result.append("G01 X"+
-         String.format(Locale.US,fstr,  xOrigin+xPerPixel*cp.control.getX(i+inc))+
-    " Y"+String.format(Locale.US,fstr,-(yOrigin+yPerPixel*cp.control.getY(i+inc)))+nL);
+         String.format(Locale.US,fstr,  job.xOrigin+job.xPerPixel*cp.control[i+inc].getX())+
+    " Y"+String.format(Locale.US,fstr,-(job.yOrigin+job.yPerPixel*cp.control[i+inc].getY()))+nL);
   } else {
-    String hand=((xPerPixel<0)^reversed^(cp.arcRadius.get(myArc)>0.0))?"G03 ":"G02 "; 
+    String hand=((job.xPerPixel<0)^reversed^(cp.arcRadius[myArc]>0.0))?"G03 ":"G02 "; 
     result.append(hand+"X"+ // Corrected thanks to jasoroony
-          String.format(Locale.US,fstr,  xOrigin+xPerPixel*cp.control.getX(i+inc))+
-     " Y"+String.format(Locale.US,fstr,-(yOrigin+yPerPixel*cp.control.getY(i+inc)))+
-     " R"+String.format(Locale.US,fstr,yPerPixel*Math.abs(cp.arcRadius.get(myArc)))+nL);
+          String.format(Locale.US,fstr,  job.xOrigin+job.xPerPixel*cp.control[i+inc].getX())+
+     " Y"+String.format(Locale.US,fstr,-(job.yOrigin+job.yPerPixel*cp.control[i+inc].getY()))+
+     " R"+String.format(Locale.US,fstr,job.yPerPixel*Math.abs(cp.arcRadius[myArc]))+nL);
 // TODO later allow for different x,y scales
   }
 } 
@@ -229,8 +289,8 @@ g2d.setColor(colour);
 
 for (int i=0;i!=cp.getArcs();i++) {  
 
-  QuantisedCircularArc ca = new QuantisedCircularArc(cp.arcRadius.get(i)>0.0,
-    cp.control.get(i),cp.control.get(i+1),Math.abs(cp.arcRadius.get(i)));
+  QuantisedCircularArc ca = new QuantisedCircularArc(cp.arcRadius[i]>0.0,
+    cp.control[i],cp.control[i+1],Math.abs(cp.arcRadius[i]));
 
   for (Point2D point : ca) 
     g2d.fillRect(point.getX()+(1-thick)/2,
@@ -261,8 +321,8 @@ if (reversed) {
 if (!attached) {
   result.append(String.format(Locale.US,"G00 Z"+fstr+"%s",millTransit,nL));
   result.append("G00 X"+
-        String.format(Locale.US,fstr,  xOrigin+xPerPixel*getX(start))+
-   " Y"+String.format(Locale.US,fstr,-(yOrigin+yPerPixel*getY(start)))+nL);
+        String.format(Locale.US,fstr,  job.xOrigin+job.xPerPixel*getX(start))+
+   " Y"+String.format(Locale.US,fstr,-(job.yOrigin+job.yPerPixel*getY(start)))+nL);
   result.append("F"+plungeRate+nL);
   result.append(String.format(Locale.US,"G01 Z"+fstr+"%s",millPlunge,nL));
   result.append("F"+millRate+nL);
@@ -272,14 +332,14 @@ for (int i=start;i!=end;i+=inc) {
   int yy=getY(i);
 
   if (backlash && skeleton.isJunction(xx,yy) && 
-      !rawJunctions.contains(xx,yy)) {
-    rawJunctions.add(new Point2D(xx,yy));
+      !job.rawJunctions.contains(xx,yy)) {
+    job.rawJunctions.add(new Point2D(xx,yy));
     result.append(addBacklashTolerance(xx,yy,radius,
               millRate,plungeRate,millPlunge,millTransit));
   }
   result.append("G01 X"+
-       String.format(Locale.US,fstr,  xOrigin+xPerPixel*getX(i+inc))+
-  " Y"+String.format(Locale.US,fstr,-(yOrigin+yPerPixel*getY(i+inc)))+nL);
+       String.format(Locale.US,fstr,  job.xOrigin+job.xPerPixel*getX(i+inc))+
+  " Y"+String.format(Locale.US,fstr,-(job.yOrigin+job.yPerPixel*getY(i+inc)))+nL);
 } 
 return new String(result);
 } 
@@ -299,8 +359,8 @@ StringBuilder result=new StringBuilder("");
 
 result.append(String.format(Locale.US,"G00 Z"+fstr+"%s",millTransit,nL));
 result.append("G00 X"+
-        String.format(Locale.US,fstr,  xOrigin+xPerPixel*x+radius)+ // radius in mm so no scale
-   " Y"+String.format(Locale.US,fstr,-(yOrigin+yPerPixel*y))+nL);
+        String.format(Locale.US,fstr,  job.xOrigin+job.xPerPixel*x+radius)+ // radius in mm so no scale
+   " Y"+String.format(Locale.US,fstr,-(job.yOrigin+job.yPerPixel*y))+nL);
 result.append("F"+plungeRate+nL);
 result.append(String.format(Locale.US,"G01 Z"+fstr+"%s",millPlunge,nL));
 result.append("F"+millRate+nL);
@@ -317,21 +377,21 @@ result.append(" I"+String.format(Locale.US,fstr,(-radius))+nL);
 
 // Construct full circle as two semi-circles to avoid problems some G-Code
 // interpreters seem to have with full circles.
-result.append("G02 X"+String.format(Locale.US,fstr,xOrigin+xPerPixel*x-radius)+
-                 " Y"+String.format(Locale.US,fstr,-(yOrigin+yPerPixel*y))+
+result.append("G02 X"+String.format(Locale.US,fstr,job.xOrigin+job.xPerPixel*x-radius)+
+                 " Y"+String.format(Locale.US,fstr,-(job.yOrigin+job.yPerPixel*y))+
                  " R"+String.format(Locale.US,fstr,radius)+nL);
-result.append("G02 X"+String.format(Locale.US,fstr,xOrigin+xPerPixel*x+radius)+
-                 " Y"+String.format(Locale.US,fstr,-(yOrigin+yPerPixel*y))+
+result.append("G02 X"+String.format(Locale.US,fstr,job.xOrigin+job.xPerPixel*x+radius)+
+                 " Y"+String.format(Locale.US,fstr,-(job.yOrigin+job.yPerPixel*y))+
                  " R"+String.format(Locale.US,fstr,radius)+nL);
 // Add extra 1/4 circle arc to ensure any tool-drag is compensated for
-result.append("G02 X"+String.format(Locale.US,fstr,  xOrigin+xPerPixel*x)+
-                 " Y"+String.format(Locale.US,fstr,-(yOrigin+yPerPixel*y+radius))+
+result.append("G02 X"+String.format(Locale.US,fstr,  job.xOrigin+job.xPerPixel*x)+
+                 " Y"+String.format(Locale.US,fstr,-(job.yOrigin+job.yPerPixel*y+radius))+
                  " R"+String.format(Locale.US,fstr,radius)+nL);
 
 result.append(String.format(Locale.US,"G00 Z"+fstr+"%s",millTransit,nL));
 result.append("G00 X"+
-        String.format(Locale.US,fstr,  xOrigin+xPerPixel*x)+
-   " Y"+String.format(Locale.US,fstr,-(yOrigin+yPerPixel*y))+nL);
+        String.format(Locale.US,fstr,  job.xOrigin+job.xPerPixel*x)+
+   " Y"+String.format(Locale.US,fstr,-(job.yOrigin+job.yPerPixel*y))+nL);
 result.append("F"+plungeRate+nL);
 result.append(String.format(Locale.US,"G01 Z"+fstr+"%s",millPlunge,nL));
 result.append("F"+millRate+nL);
@@ -339,13 +399,31 @@ result.append("F"+millRate+nL);
 return new String(result);
 } 
 // ------------------------------------------------------------------
+private static class Fit
+{ // Outcome of fitting arcs between a pair of control points
+double score=-1000000.0;
+int radius;
+int rank=Integer.MAX_VALUE; // Place in the radius ladder, which settles ties
+boolean valid=false;        // Found at least one that avoided the copper
+}
+// ------------------------------------------------------------------
 // Helper class
 private class ControlPoints
 {
-Points2D      control;
-List<Double>  arcScore;
-List<Integer> arcRadius;
-double bestScore;
+Point2D [] control;      // By slot, in route order ...
+int [] next;             // ... linked, as merges drop those between (-1 ends)
+int slots=0;             // Used, and ...
+int points=0;            // ... still linked
+double [] arcScore;      // Of the arc from each to the next
+int [] arcRadius;
+boolean [] pinned;       // Control points that must stay (chain joins)
+int [] reach;            // Furthest control point each could merge up to
+int [] rank;             // For widestSpan()
+ArcMemo memo;            // Arcs already optimised, by control point pair
+int minX,minY,maxX,maxY; // Around the route, with a MARGIN ...
+int routeTouch;          // ... and the highest lastTouch within that
+int lastRadius=0;        // Best radius of the last arc fitted
+double bestScore;        // Of the last optimiseArc()
 int bestRadius;
 
 ControlPoints() {
@@ -353,13 +431,21 @@ ControlPoints() {
 // on the original 2D route within the 'last touch' number of pixels
 // from that pixel.  Guarantee that start and end of line are controls 
  
-control   = new Points2D();
-arcScore  = new ArrayList<Double>();
-arcRadius = new ArrayList<Integer>();
+control   = new Point2D[size()];  // Can't have more than the route
+next      = new int[size()];
+arcScore  = new double[size()];
+arcRadius = new int[size()];
+pinned    = new boolean[size()];
+rank      = new int[size()];
+memo      = new ArcMemo(4*size());
 
 if (size()==0) return;
+nearTouch();
 
-control.add(get(0));   // Don't set score/radius as need 1 fewer than points
+add(get(0),true);  // Score/radius of the last stay unset, as 1 fewer arcs
+
+boolean [] join=new boolean[size()];
+for (int i : joins) join[i]=true;
 
 int lastCon=0;
 
@@ -367,63 +453,590 @@ for (int i=0;i<size();i++) {
 
   if (stop) return;
 
-  if (2.0*dlength(control.getX(lastCon),control.getY(lastCon),
-        getX(i),getY(i)) > minTouch(getX(i),getY(i))) {  
+  if (2.0*dlength(control[lastCon].getX(),control[lastCon].getY(),
+        getX(i),getY(i)) > minTouch(getX(i),getY(i)) || (join[i] && i>0)) {  
     lastCon++;
-    control.add(get(i));
-    arcScore.add(0.0); // dummy
-    arcRadius.add(0);  // dummy
+    add(get(i),join[i]);
+  }
+}
+if (control[lastCon].getX()!=getX(size()-1) ||
+    control[lastCon].getY()!=getY(size()-1)) 
+  add(get(size()-1),true); // Guarantee last point is present
+pinned[slots-1]=true;
+}
+// ------------------------------------------------------------------
+boolean simplify()
+{ // Alternative to the arc searches : replaces the control points with a
+  // Douglas-Peucker simplification of the route, all straight lines.  A 
+  // line is kept if it misses the copper, and each route point it stands
+  // for is within half its corridor (minTouch(), as for the control point
+  // spacing), otherwise it is split at the point furthest from it.  Joins
+  // are kept.  Returns false if stopped.
+
+slots=0;
+points=0;
+if (size()==0) return true;
+
+boolean [] keep=new boolean[size()];
+keep[0]=keep[size()-1]=true;
+for (int i : joins) keep[i]=true;
+
+int [] stack=new int[2*size()];  // Of sections (first,last) to simplify
+int depth=0;
+for (int first=0,last=1;last<size();last++) 
+  if (keep[last]) { 
+    stack[depth++]=first; 
+    stack[depth++]=last; 
+    first=last; 
+  }
+
+while (depth>0) {
+  if (stop) return false;
+  int last=stack[--depth];
+  int first=stack[--depth];
+  if (last-first<2) continue;
+
+  double dx=getX(last)-getX(first);
+  double dy=getY(last)-getY(first);
+  double length=Math.sqrt(dx*dx+dy*dy);
+  int furthest=first+1;
+  double furthestOff=-1.0;
+  boolean within=true;
+  for (int i=first+1;i<last;i++) {
+    double off=(length==0.0)?dlength(getX(i),getY(i),getX(first),getY(first)):
+      Math.abs(dx*(getY(i)-getY(first))-dy*(getX(i)-getX(first)))/length;
+    if (2.0*off>minTouch(getX(i),getY(i))) within=false;
+    if (off>furthestOff) { furthestOff=off; furthest=i; }
+  }
+  if (within && clearLine(get(first),get(last))) continue;
+
+  keep[furthest]=true;
+  stack[depth++]=first;
+  stack[depth++]=furthest;
+  stack[depth++]=furthest;
+  stack[depth++]=last;
+}
+
+for (int i=0;i<size();i++) 
+  if (keep[i]) {
+    if (slots>0) {
+      arcRadius[slots-1]=MAXRADIUS;  // ~Str line, as smoothGcode() has it
+      arcScore[slots-1]=0.0;
+    }
+    add(get(i),(i==0 || i==size()-1 || joins.contains(i)));
+  }
+return true;
+}
+// ------------------------------------------------------------------
+private boolean clearLine(Point2D start,Point2D end)
+{ // Does the line miss the copper?  Certainly, if there's no copper 
+  // within reach of its middle, otherwise look along it.
+int mx=(start.getX()+end.getX())/2;
+int my=(start.getY()+end.getY())/2;
+if (job.clearance.clearance(mx,my)>
+    dlength(start.getX(),start.getY(),end.getX(),end.getY())/2.0+1.0) return true;
+
+for (Point2D point : new QuantisedLine(start,end))
+  if (job.lastTouch[point.getX()][point.getY()]==0) return false;
+return true;
+}
+// ------------------------------------------------------------------
+private void add(Point2D point,boolean pin) 
+{ // To the end
+if (slots>0) next[slots-1]=slots;
+control[slots]=point;
+next[slots]=-1;
+pinned[slots++]=pin;
+points++;
+}
+// ------------------------------------------------------------------
+private void nearTouch()
+{ // Highest lastTouch near the route (at least - whole blocks are used), 
+  // which bounds the score of most arcs
+minX=maxX=getX(0);
+minY=maxY=getY(0);
+for (int i=1;i<size();i++) {
+  minX=Math.min(minX,getX(i)); maxX=Math.max(maxX,getX(i));
+  minY=Math.min(minY,getY(i)); maxY=Math.max(maxY,getY(i));
+}
+minX=Math.max(0,minX-MARGIN); maxX=Math.min(job.lastTouch.length-1,maxX+MARGIN);
+minY=Math.max(0,minY-MARGIN); maxY=Math.min(job.lastTouch[0].length-1,maxY+MARGIN);
+
+routeTouch=0;
+for (int x=minX/JobContext.BLOCK;x<=maxX/JobContext.BLOCK;x++)
+  for (int y=minY/JobContext.BLOCK;y<=maxY/JobContext.BLOCK;y++) 
+    routeTouch=Math.max(routeTouch,job.blockTouch[x][y]);
+}
+// ------------------------------------------------------------------
+int getPoints() { return points; }
+int getArcs()   { return (points-1); } // An arc needs 2 ends.
+// ------------------------------------------------------------------
+int ahead(int slot,int group) 
+{ // Slot of the control point group along, or -1 if past the end
+for (int i=0;i<group && slot>=0;i++) slot=next[slot];
+return slot;
+}
+// ------------------------------------------------------------------
+void compact() 
+{ // Renumbers the linked points to slots 0 to getPoints()-1, so that once
+  // smoothed they can be taken in order by index
+if (slots==0) return;
+int to=0;
+for (int slot=0;slot>=0;slot=next[slot],to++) {
+  control[to]  =control[slot];
+  arcScore[to] =arcScore[slot];
+  arcRadius[to]=arcRadius[slot];
+  pinned[to]   =pinned[slot];
+}
+for (int i=0;i<to;i++) next[i]=i+1;
+next[to-1]=-1;
+slots=to;
+}
+// ------------------------------------------------------------------
+void corridors() 
+{ // Sets reach, which bounds the grouping : no group from a control point
+  // can go past it (or the next join).  Fixed once the single arcs have 
+  // been scored, as merges keep the score of the arcs they replace, so the
+  // score between two control points doesn't change.  Slots stay in
+  // route order, so it stays right as others are dropped.  Before any 
+  // merges, so all slots are linked, in order.
+
+double [] scoreBefore=new double[slots];
+for (int i=1;i<slots;i++) scoreBefore[i]=scoreBefore[i-1]+arcScore[i-1];
+
+reach=new int[slots];
+int join=slots-1;             // Next pinned (working backwards)
+for (int start=slots-2;start>=0 && !stop;start--) {
+  if (pinned[start+1]) join=start+1;
+  int end=join;               // Furthest first, as most are within reach
+  while (end>start+1 && 
+     !inCorridor(start,end,scoreBefore[end]-scoreBefore[start])) end--;
+  reach[start]=end;
+}
+}
+// ------------------------------------------------------------------
+boolean within(int start,int end) { return (end<=reach[start]); }
+// ------------------------------------------------------------------
+private boolean inCorridor(int start,int end,double replaced)
+{ // Could any arc from start to end replace the arcs between them?  The
+  // ladder starts at about the chord, so every arc stays within 0.134 chord
+  // (the bulge) of it, and so must cross each perpendicular to the chord
+  // within the corridor that far either side.  If copper blocks any of
+  // those cross sections, no arc gets through.  Nor can an arc win unless
+  // it scores within FLEX of the arcs it replaces, but it can have no more
+  // pixels than tryArc()'s bound allows, nor score more than the lastTouch
+  // around it for each.  So on a long route, far apart points (whose arcs
+  // would have to cut across the copper the route winds between) need no
+  // fitting.
+
+Point2D from=control[start];
+Point2D to=control[end];
+int dx=to.getX()-from.getX();
+int dy=to.getY()-from.getY();
+double chord=dlength(0,0,dx,dy);
+int bulge=(int)(0.14*chord)+1;
+
+if ((Math.abs(dx)+Math.abs(dy)+4*bulge+SLACK)*
+    mapScore(touchNear(from,to,bulge+2))*FLEX <= 
+    replaced) return false;
+
+int sections=(int)(chord/SECTION);
+double nx=-dy/chord;   // Unit normal
+double ny= dx/chord;
+for (int k=1;k<sections;k++) {
+  double cx=from.getX()+(dx*k)/(double)sections;
+  double cy=from.getY()+(dy*k)/(double)sections;
+  if (blocked(cx,cy,nx,ny,bulge+2)) return false;
+}
+return true;
+}
+// ------------------------------------------------------------------
+private boolean blocked(double cx,double cy,double nx,double ny,int width)
+{ // Is the cross section of the corridor through (cx,cy) all copper, out
+  // to width either side along the normal?  Half pixel steps, so it's
+  // connected and a (rookwise) arc can't slip between its pixels.
+for (int step=0;step<=4*width;step++) {
+  double offset=((step%2)==0)?(step/4.0):(-(step+1)/4.0);
+  int x=(int)Math.round(cx+offset*nx);
+  int y=(int)Math.round(cy+offset*ny);
+  if (x<0 || y<0 || x>=job.lastTouch.length || y>=job.lastTouch[0].length) continue;
+  if (job.lastTouch[x][y]!=0) return false;
+}
+return true;
+}
+// ------------------------------------------------------------------
+int widestSpan() 
+{ // Largest group within reach, so the grouping scan can skip all the 
+  // wider ones.  Merging only brings points closer, so this never grows.
+int linked=-1;
+for (int slot=0,at=0;slot<slots;slot++) {  // Linked up to each slot
+  if (slot==at) { linked++; at=next[at]; }
+  rank[slot]=linked;
+}
+int widest=0;
+for (int start=0;start>=0;start=next[start]) 
+  widest=Math.max(widest,rank[reach[start]]-rank[start]);
+return widest;
+}
+// ------------------------------------------------------------------
+boolean segment(boolean parallel)
+{ // Alternative to the grouping scan in run().  The control points form a
+  // DAG whose edges are the arcs optimiseArc() finds acceptable (valid, not
+  // spanning a join, and within FLEX of the arcs they would replace).  One
+  // forward pass finds the fewest arcs from first to last control point,
+  // ties going to the higher scoring arcs.  Each pair is fitted at most once,
+  // so the cost is bounded at O(n^2) fits rather than a scan per merge.
+  // Returns false if stopped.  Before any merges, so all slots are 
+  // linked, in order.
+
+int n=getPoints();
+double [] base=new double[n];   // Score of the single arcs up to each point
+for (int i=1;i<n;i++) base[i]=base[i-1]+arcScore[i-1];
+
+int [] arcs=new int[n];         // Fewest arcs reaching each point ...
+double [] total=new double[n];  // ... their best total score ...
+int [] from=new int[n];         // ... and how (previous point, radius)
+int [] radius=new int[n];
+
+for (int j=1;j<n;j++) {
+  arcs[j]=arcs[j-1]+1;          // Can always use the single arc
+  total[j]=total[j-1]+arcScore[j-1];
+  from[j]=j-1;
+  radius[j]=arcRadius[j-1];
+
+  int reach=j-2;                // Back to the last join
+  while (reach>=0 && !pinned[reach+1]) reach--;
+  if (parallel) {               // Fit all that might improve, in parallel
+    int [] starts=new int[j-1-reach];
+    int [] ends=new int[j-1-reach];
+    int count=0;
+    for (int i=j-2;i>reach;i--) 
+      if (arcs[i]+1<=arcs[j] && within(i,j)) { 
+        starts[count]=i; 
+        ends[count++]=j; 
+      }
+    prefetch(starts,ends,count,false);
+  }
+
+  for (int i=j-2;i>reach;i--) {
+    if (stop) return false;
+    if (arcs[i]+1>arcs[j]) continue;               // Can't improve
+    if (!within(i,j)) continue;                    // Can't be acceptable
+    if (!optimiseArc(control[i],control[j],false)) continue;
+    if (stop) return false;
+    if ((bestScore*FLEX) <= (base[j]-base[i])) continue;
+
+    if (arcs[i]+1<arcs[j] || total[i]+bestScore>total[j]) {
+      arcs[j]=arcs[i]+1;
+      total[j]=total[i]+bestScore;
+      from[j]=i;
+      radius[j]=bestRadius;
+    }
+  }
+}
+
+// Merge along the path
+for (int j=n-1;j>0;j=from[j]) 
+  if (j-from[j]>1) replace(from[j],j,radius[j],base[j]-base[from[j]]);
+  // As in run(), keep the previous score so we don't compound cuts
+return true;
+}
+// ------------------------------------------------------------------
+boolean optimiseArc(Point2D start,Point2D end,boolean thorough)
+{ // Best arc between the pair, remembered as the grouping revisits pairs.
+  // Thorough if there must be an arc if at all possible (so not left to
+  // an adaptive search).
+long key=ArcMemo.key(start,end);
+int slot=memo.slot(key);
+if (slot<0 || !known(slot,thorough)) {
+  Fit fit=fitArc(start,end,thorough,job.adaptive?0:lastRadius);
+  if (stop) return true;
+  slot=remember(key,fit);
+}
+bestScore=memo.score(slot);
+bestRadius=memo.radius(slot);
+if (memo.valid(slot)) lastRadius=bestRadius;
+return memo.valid(slot);
+}
+// ------------------------------------------------------------------
+private boolean known(int slot,boolean thorough)  
+  { return (memo.valid(slot) || !thorough || !job.adaptive); }
+// ------------------------------------------------------------------
+private int remember(long key,Fit fit)
+{
+memo.put(key,fit.score,fit.valid?fit.radius:ArcMemo.INVALID); 
+return memo.slot(key);
+}
+// ------------------------------------------------------------------
+void prefetch(int group,boolean thorough)
+{ // As below, for all the pairs of control points group apart which are 
+  // within() reach, unless thorough (when group is 1)
+int [] starts=new int[points];
+int [] ends=new int[points];
+int count=0;
+for (int start=0,end=ahead(0,group);end>=0;start=next[start],end=next[end]) 
+  if (thorough || within(start,end)) { 
+    starts[count]=start; 
+    ends[count++]=end; 
   }
+prefetch(starts,ends,count,thorough);
 }
-if (control.getX(lastCon)!=getX(size()-1) ||
-    control.getY(lastCon)!=getY(size()-1)) {
-  control.add(get(size()-1));
-  arcScore.add(0.0); // dummy
-  arcRadius.add(0);  // dummy
-} // Guarantee last point is present
+// ------------------------------------------------------------------
+void prefetch(int [] starts,int [] ends,int count,boolean thorough)
+{ // Fits arcs for the pairs (starts[i],ends[i]) of control points across
+  // the pool and memoises them, so that optimiseArc() then has the answers
+  // to hand.  fitArc() depends only on the pair (there's no hint from the 
+  // last fit in adaptive mode, where it could change the answer), so the
+  // result is the same whatever the number of workers.
 
+long [] keys=new long[count];
+int unknown=0;
+for (int i=0;i<count;i++) {
+  long key=ArcMemo.key(control[starts[i]],control[ends[i]]);
+  int slot=memo.slot(key);
+  if (slot>=0 && known(slot,thorough)) continue;
+  starts[unknown]=starts[i];
+  ends[unknown]=ends[i];
+  keys[unknown++]=key;
+}
+if (unknown==0) return;
+
+Fit [] fits=new Fit[unknown];
+job.pool.invoke(new FitTask(starts,ends,thorough,fits,0,unknown));
+if (stop) return;
+for (int i=0;i<unknown;i++) remember(keys[i],fits[i]);
 }
 // ------------------------------------------------------------------
-int getPoints() { return control.size(); }
-int getArcs()   { return (control.size()-1); } // An arc needs 2 ends.
+private class FitTask extends RecursiveAction
+{ // Fits a range of pairs, splitting it if large
+private static final long serialVersionUID = 1L;
+final int [] starts,ends;
+final int lo,hi;
+final boolean thorough;
+final Fit [] fits;
+
+FitTask(int [] starts,int [] ends,boolean thorough,Fit [] fits,int lo,int hi)
+{
+this.starts=starts; this.ends=ends; this.thorough=thorough;
+this.fits=fits; this.lo=lo; this.hi=hi;
+}
+@Override
+protected void compute()
+{
+if ((hi-lo)>GRAIN) {
+  int mid=(lo+hi)>>>1;
+  invokeAll(new FitTask(starts,ends,thorough,fits,lo,mid),
+            new FitTask(starts,ends,thorough,fits,mid,hi));
+  return;
+}
+int hint=0;  // As optimiseArc(), within the range (no effect on the answer)
+for (int i=lo;i<hi && !stop;i++) {
+  fits[i]=fitArc(control[starts[i]],control[ends[i]],thorough,hint);
+  if (fits[i].valid && !job.adaptive) hint=fits[i].radius;
+}
+}
+}
 // ------------------------------------------------------------------
-boolean optimiseArc(Point2D start,Point2D end)
-{ 
-  boolean valid=false;
-  int line=(int)(0.5+dlength(start.getX(),start.getY(),end.getX(),end.getY()));
+private Fit fitArc(Point2D start,Point2D end,boolean thorough,int hint)
+{ // Best arc between the pair, over a ladder of radii (from about the chord
+  // up to ~straight) and both hands.  The answer is that of trying each in 
+  // ladder order and keeping the first of the best, but the most promising
+  // (the hint radius, e.g. the last one) is scored first so that arcScore()
+  // can abandon others as soon as they can no longer beat it (or tie with it
+  // from earlier in the ladder).  If adaptive, only some of the ladder is
+  // tried (see adaptiveFit()), unless that finds nothing and we're to be
+  // thorough.  Safe to call from several threads at once.
+
+  double chord=dlength(start.getX(),start.getY(),end.getX(),end.getY());
+  int line=(int)(0.5+chord);
 
+  Fit fit=new Fit();
   int radius=BASERADIUS;
   while (radius < line) radius=incrementRadius(radius); 
-  bestRadius=radius;
-  bestScore=-1000000.0;
-
-  for (;radius<MAXRADIUS;radius=incrementRadius(radius)) {
-    nexthanded:
-    for (int handedness=0;handedness<2;handedness++) {
-
-      QuantisedCircularArc ca = new QuantisedCircularArc(handedness==0,
-                             start,end,radius);
-
-      double score=0.0;
-      for (Point2D point : ca) {  
-        if (stop) return true; 
-        int touched=lastTouch[point.getX()][point.getY()];
-        if (touched==0) {
-          score=-1.0;
-          continue nexthanded; // Enforce avoidance of original copper
-        }
-        score+=(mapScore(touched));  
-      } 
+  fit.radius=radius;
 
-      valid=true;
+  int rungs=0;
+  for (int r=radius;r<MAXRADIUS;r=incrementRadius(r)) rungs++;
+  int [] radii=new int[rungs];
+  for (int i=0;i<rungs;i++,radius=incrementRadius(radius)) radii[i]=radius;
 
-      if (score > bestScore) {
-        bestScore=score;
-        bestRadius=(handedness==0)?radius:(-radius);
-      } 
-    }
+  double [] sagitta=new double[rungs];
+  for (int i=0;i<rungs;i++) sagitta[i]=(chord<2*radii[i])?
+       (radii[i]-Math.sqrt((double)radii[i]*radii[i]-chord*chord/4.0)):radii[i];
+
+  // Ranks are 2*rung+handedness
+  int first=0;
+  for (int rank=0;rank<2*rungs;rank+=2) 
+    if (radii[rank/2]==Math.abs(hint)) first=rank+((hint<0)?1:0);
+
+  double [] score=new double[2*rungs];
+  Arrays.fill(score,Double.NaN);  // Not yet tried
+
+  tryArc(start,end,radii,sagitta,first,score,fit);
+  if (job.adaptive) adaptiveFit(start,end,radii,sagitta,score,fit);
+
+  if (!job.adaptive || (thorough && !fit.valid))  // Full sweep
+    for (int rank=0;rank<2*rungs && !stop;rank++) 
+      if (Double.isNaN(score[rank])) tryArc(start,end,radii,sagitta,rank,score,fit);
+
+return fit;
+}
+// ------------------------------------------------------------------
+private void adaptiveFit(Point2D start,Point2D end,int [] radii,
+                         double [] sagitta,double [] score,Fit fit)
+{ // The score varies smoothly with radius, so try every COARSE'th rung, 
+  // then the rungs around each local maximum of those.  Once the sagitta is
+  // under STRAIGHT the arc is as good as a line, and larger radii would only
+  // rasterise the same pixels, so the ladder stops at the first such.
+
+int rungs=0;
+while (rungs<radii.length && sagitta[rungs]>=STRAIGHT) rungs++;
+rungs=Math.min(rungs+1,radii.length);
+
+for (int rung=0;rung<rungs;rung+=COARSE) 
+  for (int hand=0;hand<2;hand++) 
+    tryArc(start,end,radii,sagitta,2*rung+hand,score,fit);
+for (int hand=0;hand<2;hand++)  // Always include the straightest
+  tryArc(start,end,radii,sagitta,2*(rungs-1)+hand,score,fit);
+
+for (int rung=0;rung<rungs;rung+=COARSE) 
+  for (int hand=0;hand<2;hand++) {
+    if (stop) return;
+    double here=score[2*rung+hand];
+    if (!(here>=0.0)) continue;   // Crossed copper, or bettered
+
+    int below=rung-COARSE;
+    int above=Math.min(rung+COARSE,rungs-1);
+    if ((below>=0 && score[2*below+hand]>here) || 
+        (above>rung && score[2*above+hand]>here)) continue;  // Not a peak
+
+    for (int near=Math.max(0,below+1);near<above;near++)
+      tryArc(start,end,radii,sagitta,2*near+hand,score,fit);
+  }
+}
+// ------------------------------------------------------------------
+private void tryArc(Point2D start,Point2D end,int [] radii,
+                    double [] sagitta,int rank,double [] score,Fit fit)
+{ // Scores one rank (2*rung+handedness) of the ladder, if not already done,
+  // keeping the best.  A shorter arc stays within its sagitta of the chord,
+  // so x and y each wander at most twice that beyond the chord's extent.
+  // Each pixel is one rookwise step, which bounds the number of pixels.
+
+if (!Double.isNaN(score[rank]) || stop) return;
+int r=radii[rank/2];
+if (intoCopper(start,end,r,(rank%2)==0,sagitta[rank/2])) {
+  score[rank]=-1.0;
+  return;
+}
+int bulge=(int)sagitta[rank/2];
+score[rank]=arcScore(start,end,r,(rank%2)==0,fit.score,rank<fit.rank,
+   Math.abs(end.getX()-start.getX())+Math.abs(end.getY()-start.getY())+4*bulge+SLACK,
+   mapScore(touchNear(start,end,bulge+2)));
+if (score[rank]<0.0) return;  // Crossed copper, or couldn't win
+
+fit.valid=true;
+if (score[rank]>fit.score || (score[rank]==fit.score && rank<fit.rank)) {
+  fit.score=score[rank];
+  fit.radius=((rank%2)==0)?r:(-r);
+  fit.rank=rank;
+} 
+}
+// ------------------------------------------------------------------
+private boolean intoCopper(Point2D start,Point2D end,int radius,boolean cw,
+                           double sagitta)
+{ // Must the arc cross copper?  Most that do are caught here, with no
+  // rasterising, at its quarter points : QuantisedCircularArc passes within
+  // a pixel of each, so if one is over sqrt(DEEP) pixels (allowing for the
+  // rounding to the nearest) into the copper the arc crosses copper.
+
+int dx=end.getX()-start.getX();
+int dy=end.getY()-start.getY();
+double chord=Math.sqrt((double)dx*dx+(double)dy*dy);
+double nx=(cw?-dy:dy)/chord;  // Unit normal, towards the bulge
+double ny=(cw?dx:-dx)/chord;
+double cx=start.getX()+dx/2.0-(radius-sagitta)*nx;  // Centre
+double cy=start.getY()+dy/2.0-(radius-sagitta)*ny;
+
+for (int quarter=1;quarter<4;quarter++) {
+  double px=(start.getX()-cx)*(4-quarter)+(end.getX()-cx)*quarter;
+  double py=(start.getY()-cy)*(4-quarter)+(end.getY()-cy)*quarter;
+  double scale=radius/Math.sqrt(px*px+py*py);  // Out to the arc
+  int x=(int)Math.round(cx+px*scale);
+  int y=(int)Math.round(cy+py*scale);
+  if (x>=0 && y>=0 && x<job.clearance.getWidth() && y<job.clearance.getHeight() &&
+      job.clearance.squared(x,y)<=-DEEP) return true;
+}
+return false;
+}
+// ------------------------------------------------------------------
+private int touchNear(Point2D start,Point2D end,int bulge)
+{ // Highest lastTouch an arc bulging up to this far from the chord could
+  // meet : the route's maximum if it's inside the region around the route,
+  // otherwise the board's.
+
+if (Math.min(start.getX(),end.getX())-bulge>=minX &&
+    Math.max(start.getX(),end.getX())+bulge<=maxX &&
+    Math.min(start.getY(),end.getY())-bulge>=minY &&
+    Math.max(start.getY(),end.getY())+bulge<=maxY) return routeTouch;
+return job.maxTouch;
+}
+// ------------------------------------------------------------------
+private double arcScore(Point2D start,Point2D end,int radius,boolean cw,
+              double beat,boolean tieWins,int most,double touchMax)
+{ // Sum of the mapped lastTouch along an arc, or -1 if it crosses copper.
+  // Also -1 once the arc can't score more than beat (or equal it, if a tie
+  // doesn't win), assuming at most 'most' pixels each worth up to touchMax.
+  // mapScore() must be increasing for that to hold.
+
+ArcTemplates.Template arc=ArcTemplates.get(end.getX()-start.getX(),
+                                 end.getY()-start.getY(),radius,cw);
+// Bound is score+(most-pixels)*touchMax, so track score-pixels*touchMax
+double floor=beat-most*touchMax;
+
+if (arc==null)  // New shape - walk it
+  return walkScore(new QuantisedCircularArc(cw,start,end,radius),
+                   floor,tieWins,touchMax);
+return templateScore(arc,start,floor,tieWins,touchMax);
+}
+// ------------------------------------------------------------------
+private double walkScore(QuantisedCircularArc ca,double floor,boolean tieWins,
+                         double touchMax)
+{ // arcScore() for an arc with no template
+int [][] lastTouch=job.lastTouch;
+double score=0.0;
+double lead=0.0;
+for (Point2D point : ca) {  
+  int touched=lastTouch[point.getX()][point.getY()];
+  if (touched==0) return -1.0;
+  score+=(mapScore(touched));  
+  lead+=(mapScore(touched)-touchMax);
+  if (lead<floor || (lead==floor && !tieWins)) return -1.0;
+}
+return score;
+}
+// ------------------------------------------------------------------
+private double templateScore(ArcTemplates.Template arc,Point2D start,
+                     double floor,boolean tieWins,double touchMax)
+{ // arcScore() offsetting a template from the start, extending as we go
+int [][] lastTouch=job.lastTouch;
+double score=0.0;
+double lead=0.0;
+int sx=start.getX();
+int sy=start.getY();
+int n=arc.size();
+int [] offsets=arc.offsets();
+for (int k=0;;k+=2) {  
+  if (k>=n) {
+    if (!arc.extend(k)) return score;
+    n=arc.size();
+    offsets=arc.offsets();
   }
-return valid; // Found at least one that didn't violate copper trace
+  int touched=lastTouch[sx+offsets[k]][sy+offsets[k+1]];
+  if (touched==0) return -1.0;
+  score+=(mapScore(touched));  
+  lead+=(mapScore(touched)-touchMax);
+  if (lead<floor || (lead==floor && !tieWins)) return -1.0;
+} 
 }
 // ------------------------------------------------------------------
 private double mapScore(double score) { return score; } 
@@ -437,10 +1050,10 @@ private int minTouch(int x, int y)
   // record the maximum iterations, but the lowest of the adjacent 
   // cells is the relevant figure for the last change.   
 
-int touch1=min(lastTouch[x-1][y-1],lastTouch[x-1][y]);
-int touch2=min(lastTouch[x+1][y-1],lastTouch[x][y-1]);
-int touch3=min(lastTouch[x+1][y+1],lastTouch[x+1][y]);
-int touch4=min(lastTouch[x-1][y+1],lastTouch[x][y+1]);
+int touch1=min(job.lastTouch[x-1][y-1],job.lastTouch[x-1][y]);
+int touch2=min(job.lastTouch[x+1][y-1],job.lastTouch[x][y-1]);
+int touch3=min(job.lastTouch[x+1][y+1],job.lastTouch[x+1][y]);
+int touch4=min(job.lastTouch[x-1][y+1],job.lastTouch[x][y+1]);
 
 int touch5=min(touch1,touch2);
 int touch6=min(touch3,touch4);
@@ -451,17 +1064,14 @@ return (min(touch5,touch6));
 private int incrementRadius(int radius) { return ((radius*13)/10); }
 // Geometric progression.  13/10 ~= cube root of 2, so every third is x2
 // ------------------------------------------------------------------
-private void replace(int start,int group,int radius,double score) 
-{ // Joins the control points from start to start+group using a defined
-  // radius and score.
+private void replace(int start,int end,int radius,double score) 
+{ // Joins the control points in slots start and end using a defined
+  // radius and score.  Those between are just unlinked, so nothing moves.
 
-for (int i=0;i<(group-1);i++) { // Remove (group-1) points ...
-  control.remove(start+1);
-  arcRadius.remove(start+1);
-  arcScore.remove(start+1);
-}
-arcRadius.set(start,radius); // .. and adapt the startpoint
-arcScore.set(start,score);
+for (int i=next[start];i!=end;i=next[i]) points--;
+next[start]=end;
+arcRadius[start]=radius;
+arcScore[start]=score;
 }
 
 }
@@ -0,0 +1,190 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Collections;
+
+class RouteGraph {
+
+// A planar graph of the milling routes.  Nodes are the route ends (nearly
+// always the 3- and 4-way junctions that Skeleton.ripLine() stops at,
+// otherwise dead ends) and edges are the routes themselves.
+
+// millTrails() is the mill-order planner.  It covers every route exactly
+// once using the fewest continuous cuts the graph allows, in the manner of
+// the Chinese postman problem : within each connected component the odd
+// degree nodes are paired (nearest first) by notional transit edges, an
+// Euler circuit is walked (Hierholzer) and the circuit is then cut at each
+// transit.  Hence one trail per pair of odd nodes, or one per component
+// if it has none.  The transit optimiser then only needs to order trails.
+
+// A trail is an int[] of route ends, using the same convention as the
+// pairs in Skeleton.endPairs() : 2r cuts route r from its start, 2r+1 cuts
+// it from its end (i.e. reversed).  Consecutive routes in a trail share
+// an end pixel, so no retract is needed between them.
+
+private final List<Route2D> routes;
+private final List<Point2D> nodes=new ArrayList<Point2D>();
+private final List<List<Integer>> leaving=new ArrayList<List<Integer>>();
+private final HashMap<Long,Integer> nodeAt=new HashMap<Long,Integer>();
+private final int [] nodeOf;  // Node at each route end (2r start, 2r+1 end)
+
+RouteGraph(List<Route2D> routes)
+{
+this.routes=routes;
+nodeOf=new int[2*routes.size()];
+
+for (int r=0;r<routes.size();r++) {
+  Route2D route=routes.get(r);
+  nodeOf[2*r]  =node(route.get(0));
+  nodeOf[2*r+1]=node(route.get(route.size()-1));
+}
+}
+// ------------------------------------------------------------------
+private int node(Point2D point)
+{ // Index of the node at this pixel, creating it if new
+long key=((long)point.getX()<<32)|(point.getY()&0xFFFFFFFFL);
+Integer found=nodeAt.get(key);
+if (found!=null) return found;
+
+nodeAt.put(key,nodes.size());
+nodes.add(point);
+leaving.add(new ArrayList<Integer>());
+return nodes.size()-1;
+}
+// ------------------------------------------------------------------
+public List<int []> millTrails()
+{
+// Half-edges are numbered as route ends (h=2e leaves from the start of edge
+// e, h=2e+1 from its end) and the same numbering is extended beyond the
+// routes for the notional transits which pair up the odd nodes.
+
+List<Integer> from=new ArrayList<Integer>();  // Node each half-edge leaves
+for (int h=0;h<nodeOf.length;h++) from.add(nodeOf[h]);
+
+int [] component=components();
+int [] degree=new int[nodes.size()];
+for (int h=0;h<nodeOf.length;h++) degree[nodeOf[h]]++;
+
+// Pair the odd nodes within each component, nearest first.  Greedy, but
+// a transit between trails is a G00 which the annealer will reorder anyway
+boolean [] paired=new boolean[nodes.size()];
+for (int a=0;a<nodes.size();a++) {
+  if ((degree[a]%2)==0 || paired[a]) continue;
+  int best=-1;
+  double bestDist=Double.MAX_VALUE;
+  for (int b=a+1;b<nodes.size();b++) {
+    if ((degree[b]%2)==0 || paired[b] || component[b]!=component[a]) continue;
+    double dist=nodes.get(a).distance(nodes.get(b));
+    if (dist<bestDist) { bestDist=dist; best=b; }
+  }
+  paired[a]=paired[best]=true; // Handshake lemma : always a partner
+  from.add(a);
+  from.add(best);
+}
+int edges=from.size()/2;
+for (int h=0;h<from.size();h++) leaving.get(from.get(h)).add(h);
+
+// Walk an Euler circuit of each component and cut it at the transits
+boolean [] used=new boolean[edges];
+int [] next=new int[nodes.size()];  // Next unexplored half-edge at each node
+boolean [] walked=new boolean[nodes.size()];
+List<int []> trails=new ArrayList<int []>();
+
+for (int start=0;start<nodes.size();start++) {
+  if (walked[component[start]]) continue;
+  walked[component[start]]=true;
+
+  List<Integer> circuit=eulerCircuit(start,from,used,next);
+
+  int first=0; // Begin just after a transit, if there is one
+  for (int i=0;i<circuit.size();i++)
+    if (circuit.get(i)>=nodeOf.length) { first=i+1; break; }
+
+  List<Integer> trail=new ArrayList<Integer>();
+  for (int i=0;i<circuit.size();i++) {
+    int h=circuit.get((first+i)%circuit.size());
+    if (h<nodeOf.length) trail.add(h);
+    if ((h>=nodeOf.length || i==(circuit.size()-1)) && trail.size()>0) {
+      int [] t=new int[trail.size()];
+      for (int j=0;j<t.length;j++) t[j]=trail.get(j);
+      trails.add(t);
+      trail.clear();
+    }
+  }
+}
+return trails;
+}
+// ------------------------------------------------------------------
+private List<Integer> eulerCircuit(int start,List<Integer> from,
+                                   boolean [] used,int [] next)
+{ // Hierholzer's algorithm, iterative to avoid deep recursion on the
+  // board outline.  Returns the half-edges in walking order.
+
+List<Integer> circuit=new ArrayList<Integer>();
+List<Integer> nodeStack=new ArrayList<Integer>();
+List<Integer> edgeStack=new ArrayList<Integer>();
+nodeStack.add(start);
+edgeStack.add(-1);
+
+while (nodeStack.size()>0) {
+  int v=nodeStack.get(nodeStack.size()-1);
+  List<Integer> out=leaving.get(v);
+
+  while (next[v]<out.size() && used[out.get(next[v])/2]) next[v]++;
+
+  if (next[v]<out.size()) {
+    int h=out.get(next[v]);
+    used[h/2]=true;
+    nodeStack.add(from.get(h^1)); // Other end of the same edge
+    edgeStack.add(h);
+  } else {
+    nodeStack.remove(nodeStack.size()-1);
+    int h=edgeStack.remove(edgeStack.size()-1);
+    if (h>=0) circuit.add(h);
+  }
+}
+Collections.reverse(circuit); // Built backwards as the stack unwinds
+return circuit;
+}
+// ------------------------------------------------------------------
+private int [] components()
+{ // Label each node with its connected component (smallest node index)
+
+int [] parent=new int[nodes.size()];
+for (int i=0;i<parent.length;i++) parent[i]=i;
+
+for (int r=0;r<routes.size();r++) {
+  int a=find(parent,nodeOf[2*r]);
+  int b=find(parent,nodeOf[2*r+1]);
+  if (a<b) parent[b]=a;
+  else     parent[a]=b;
+}
+for (int i=0;i<parent.length;i++) parent[i]=find(parent,i);
+return parent;
+}
+// ------------------------------------------------------------------
+private int find(int [] parent,int i)
+{
+while (parent[i]!=i) i=parent[i]=parent[parent[i]];
+return i;
+}
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RouteScheduler {
+
+// Smooths a board's routes on a work-stealing pool.  The routes' costs
+// vary by orders of magnitude (the board outline alone can take longer
+// than all the rest), so they are submitted longest processing time first,
+// by Route2D.cost(), which keeps the pool busy to the end : the big ones
+// start at once and the small ones fill in around them.  The big routes
+// share out their own arc fitting on the same pool (see Route2D.prefetch),
+// so idle workers steal that too.
+
+// Each route has a CompletableFuture, indexed as the routes are, which the
+// G code writer can wait on in whatever order it needs them, and a
+// listener hears of each completion as it happens, so nothing polls.
+
+private final List<Route2D> routes;
+private final ForkJoinPool pool;
+private final List<CompletableFuture<Void>> smoothed;
+private final AtomicInteger finished=new AtomicInteger(0);
+private volatile boolean cancelled=false;
+
+RouteScheduler(List<Route2D> routes,ForkJoinPool pool)
+{
+this.routes=routes;
+this.pool=pool;
+smoothed=new ArrayList<CompletableFuture<Void>>(
+                Collections.nCopies(routes.size(),(CompletableFuture<Void>)null));
+}
+// ------------------------------------------------------------------
+void start(Runnable listener)
+{ // Submits them all, costliest first.  listener is run (on a worker) as
+  // each completes, however it completes.
+
+double [] cost=new double[routes.size()];
+Integer [] order=new Integer[routes.size()];
+for (int r=0;r<routes.size();r++) {
+  cost[r]=routes.get(r).cost();
+  order[r]=r;
+}
+Arrays.sort(order,Comparator.comparingDouble((Integer r) -> -cost[r]));
+
+for (int r : order) {
+  Route2D route=routes.get(r);
+  smoothed.set(r,CompletableFuture.runAsync(() -> { if (!cancelled) route.run(); },pool)
+                   .whenComplete((done,failure) -> {
+                     finished.incrementAndGet();
+                     if (listener!=null) listener.run();
+                   }));
+}
+}
+// ------------------------------------------------------------------
+CompletableFuture<Void> smoothed(int route) { return smoothed.get(route); }
+int finished()                              { return finished.get(); }
+// ------------------------------------------------------------------
+CompletableFuture<Void> all()
+{
+return CompletableFuture.allOf(smoothed.toArray(new CompletableFuture<?>[0]));
+}
+// ------------------------------------------------------------------
+void cancel()
+{ // Routes running stop at their next check, the rest never start
+cancelled=true;
+for (Route2D route : routes) route.gracefulExit();
+}
+}
\ No newline at end of file
@@ -17,6 +17,8 @@ Copyright (C) 2016  S Combes
 */
 package cisolate;
 
+import java.util.SplittableRandom;
+
 public abstract class Seeker {
 
 // The base class for a candidate solution to an optimisation problem.
@@ -44,6 +46,13 @@ public abstract Seeker[] neighbourhood(int n);
 // A subset makes calling routine a stochastic optimisation : returning complete
 // set allows a deterministic optimisation (subject to caller's method).
 
+public void setRandom(SplittableRandom random) {}
+// Where a stochastic Seeker draws its moves from.  Copies aren't given
+// it : whoever walks one sets its own.
+
+public int size() { return 0; }
+// Degrees of freedom, as a guide to how long to search : 0 if unknown.
+
 public abstract Seeker deepCopy();  
 
 public abstract String toString();      
@@ -44,8 +44,11 @@ public Points2D constellation;  // subset of drills as pattern for alignment
 public Points2D threeWays;
 public Points2D fourWays;
 public Lines2D transits;
+public List<int []> trails;  // Continuous cuts, see RouteGraph
 
 public int [][] lasttouch;
+public DistanceField clearance;  // To and from the copper, by lasttouch
+final JobContext job;            // Given both, and carried by our routes
 public int routes0w;       // Circuits
 
 final static int DONE=(-1);
@@ -78,9 +81,10 @@ static final int[] threes={0x1a , 0x32 , 0x31 , 0x25 , 0x35 , 0x33 , 0x3a ,
 //                                     4 | x | 3
 //                                     2 | 1 | 0
 
-Skeleton(boolean [][] bimg,ExecutorService pool,Board board) {
+Skeleton(boolean [][] bimg,ExecutorService pool,Board board,JobContext job) {
 
 this.binaryImg=bimg;
+this.job=job;
 
 width=bimg.length;
 height=bimg[0].length;
@@ -135,6 +139,8 @@ for (pass=0;true;pass++) {
   board.gen.setText(String.format("Automata generation %d",(pass+1)));
 }
 pass=DONE;
+clearance=new DistanceField(lasttouch);
+job.touched(lasttouch,clearance);
 // ------------------------------------------------------------
 // Now extract the traces we need to mill ...
 
@@ -187,7 +193,7 @@ if (board.relieved) {
       QuantisedCircularArc ca=new QuantisedCircularArc(true,
                         new Point2D(d.getX(),d.getY()+radius*(2*segments-1)),
                         new Point2D(d.getX()+radius*(2*segments-1),d.getY()),radius);
-      Route2D route=new Route2D();
+      Route2D route=new Route2D(job);
       for (Point2D point : ca) {
         // Only allow that pixel to be drawn if it is closer to its own drill centre than
         // to any other and we have a clear run from the drill centre to
@@ -210,7 +216,7 @@ if (board.relieved) {
           if (route.size()>5) { // Keep reasonably sized orphans ...
             routes.add(route);
           }
-          route=new Route2D();  // ... and prepare next route        
+          route=new Route2D(job);  // ... and prepare next route        
         }
       }
       if (route.size()>5)
@@ -254,9 +260,14 @@ if (board.stop) return;
   }
 }
 
+// Join the routes into as few continuous cuts as the junctions allow, 
+// so the transit optimiser (and the machine) need only deal with these.
+// Routes within a cut are then chained, so that each chain is smoothed 
+// (and plunged) once, and the trails re-planned over the chains.
 
-
-
+trails=new RouteGraph(routes).millTrails();
+routes=chainRoutes(trails);
+trails=new RouteGraph(routes).millTrails();
 transits=new Lines2D(endPairs());  // For mill route optimisation
 
 // Setup a subset of drill points to assist with board alignment on
@@ -322,17 +333,52 @@ public final Points2D endPairs()
 // only needs to know starts and ends (because the route itself isn't 
 // optimised by the Travelling Salesman routine).  Places start points
 // at even indices (0,2,4 ...) End points at following odd number (1,2,5 ...)
+// Pairs are the ends of each trail, which may be several routes long.
 
 Points2D pairs=new Points2D();
 
-for (Route2D route : routes) {
-  pairs.add(route.get(0));               // Start
-  pairs.add(route.get(route.size()-1));  // End
+for (int [] trail : trails) {
+  pairs.add(routeEnd(trail[0]));                 // Start
+  pairs.add(routeEnd(trail[trail.length-1]^1));  // End
 }
 
 return pairs;
 }
 // ---------------------------------------------------------------
+public Point2D routeEnd(int end) 
+{ // Ends numbered as endPairs() : 2r is start of route r, 2r+1 its end
+Route2D route=routes.get(end/2);
+return ((end%2)==0)?route.get(0):route.get(route.size()-1);
+}
+// ---------------------------------------------------------------
+private List<Route2D> chainRoutes(List<int []> trails) 
+{
+// Concatenates the routes along each trail.  Consecutive routes share an 
+// end pixel, so the chain is continuous; the join is kept as a control
+// point by Route2D.append().  A join where the cut would double back on
+// itself is left as a break between chains : there is nothing for the
+// smoothing to gain there and the re-planned trail still cuts the two 
+// chains back to back.
+
+List<Route2D> chained=new ArrayList<Route2D>();
+
+for (int [] trail : trails) {
+  Route2D chain=new Route2D(job);
+  for (int end : trail) {
+    Route2D route=routes.get(end/2);
+    boolean reversed=((end%2)==1);
+
+    if (chain.size()>0 && chain.turnsBack(route,reversed)) {
+      chained.add(chain);
+      chain=new Route2D(job);
+    }
+    chain.append(route,reversed);
+  }
+  chained.add(chain);
+}
+return chained;
+}
+// ---------------------------------------------------------------
 private Route2D ripLine(Point2D point) 
 {
 // Extract a line from the boolean array, hoovering it up as we go. 
@@ -341,7 +387,7 @@ private Route2D ripLine(Point2D point)
 // needs few special cases to ensure it is total.
 // Line is true, background is false.
 
-Route2D trace = new Route2D();
+Route2D trace = new Route2D(job);
 trace.add(point);
 int x=point.getX();
 int y=point.getY();
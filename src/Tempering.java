@@ -0,0 +1,149 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class Tempering extends Optimiser {
+
+// Parallel tempering (replica exchange) : a ladder of Anneal's chains, each
+// held at its own temperature on its own thread, spaced geometrically from
+// the starting temperature down to where Anneal's cooling would finish.
+// Every so often neighbouring chains are offered each other's current
+// seekers, and swap with the probability that leaves each chain's
+// temperature undisturbed.  So good seekers found hot sink to the cold end
+// to be polished, and cold chains stuck in a local maximum are shaken up.
+
+// Each chain does as much per rep as Anneal does, so with a processor per
+// chain it searches several times as much in the same time.
+
+static final int CHAINS=4;      // When results mustn't depend on processors
+static final int EXCHANGES=10;  // Per rep, each chain walking a tenth of
+                                // Anneal's moves per rep between
+
+private int reps;            // replications to try
+private volatile int rep;    // rep we're at
+private int chains;
+private double temperature;
+private double coolRate;
+private volatile double bestScore;
+private int swaps=0;         // Exchanges taken, of those offered
+private int offers=0;
+
+public Tempering(Optimisable optimee,Seeker seeker,int reps,double temperature,
+                 double coolRate,int chains,SplittableRandom random) 
+{
+super(optimee,seeker,Thread.MIN_PRIORITY,random); 
+this.reps=reps;
+this.temperature=temperature;
+this.coolRate=coolRate;
+this.chains=chains;
+
+if (coolRate > 1.0 || coolRate <= 0.0)
+  throw new IllegalArgumentException("Cooling rate out of range");
+if (temperature <= 0.0)
+  throw new IllegalArgumentException("Temperature out of range");
+if (chains < 2)
+  throw new IllegalArgumentException("Need a ladder of temperatures");
+
+rep=0; // Not running
+}
+// ------------------------------------------------------------------------
+public void optimise()
+{
+best=start.deepCopy();
+bestScore=startScore=optimee.score(best);
+if (reps==0) { optimee.setSolution(best); return; }
+
+Anneal.Chain [] ladder=new Anneal.Chain[chains]; // Hottest first
+int walk=Math.max(1,Anneal.subreps(start)/EXCHANGES);
+List<Callable<Object>> walks=new ArrayList<Callable<Object>>();
+for (int c=0;c<chains;c++) {
+  double cooling=(double)c/(chains-1);
+  ladder[c]=new Anneal.Chain(optimee,start,
+           temperature*Math.pow(coolRate,cooling*(reps-1)),random.split());
+  Anneal.Chain chain=ladder[c];
+  walks.add(Executors.callable(() -> { chain.walk(walk); }));
+}
+
+ExecutorService threads=Executors.newFixedThreadPool(chains,(r) -> {
+  Thread t=new Thread(r);
+  t.setDaemon(true);
+  t.setPriority(Thread.MIN_PRIORITY);
+  return t;
+});
+
+try {
+  for (rep=1;rep<=reps;rep++) {
+    for (int e=0;e<EXCHANGES;e++) {
+      if (stop) return; // Running in parallel - stop can be set outside
+      threads.invokeAll(walks);
+      exchange(ladder,e%2);
+      for (Anneal.Chain chain : ladder) 
+        if (chain.bestScore>bestScore) {
+          best=chain.best.deepCopy();
+          bestScore=chain.bestScore;
+        }
+    }
+  }
+}
+catch (InterruptedException e) { Thread.currentThread().interrupt(); return; }
+finally { threads.shutdownNow(); }
+
+rep=0;  // Done
+optimee.setSolution(best);
+}
+// ------------------------------------------------------------------------
+private void exchange(Anneal.Chain [] ladder,int first)
+{ // Offers a swap between each neighbouring pair, alternately the pairs
+  // starting at 0 and at 1.  Accepted as Anneal accepts a move, but with
+  // the difference in scores weighed by the difference in inverse
+  // temperature : always if the hotter chain has the better seeker.
+for (int c=first;c+1<ladder.length;c+=2) {
+  Anneal.Chain hot =ladder[c];
+  Anneal.Chain cold=ladder[c+1];
+  double delta=(hot.lastScore-cold.lastScore)/Math.abs(startScore)*
+               (1.0/cold.temperature-1.0/hot.temperature);
+  offers++;
+  if (delta<0.0 && Math.exp(delta)<=random.nextDouble()) continue;
+
+  swaps++;
+  Seeker seeker=hot.last;
+  hot.last=cold.last;
+  cold.last=seeker;
+  double score=hot.lastScore;
+  hot.lastScore=cold.lastScore;
+  cold.lastScore=score;
+}
+}
+// ------------------------------------------------------------------------
+public double exchangeRate() { return (offers==0)?0.0:(double)swaps/offers; }
+// -------------------------------------------------------------------------
+@Override
+public double getProgress() { return (double)(rep)/(double)reps; }
+// -------------------------------------------------------------------------
+public double getFraction() { return bestScore/startScore; }
+// -------------------------------------------------------------------------
+public boolean running() { return (rep!=0); }
+// -------------------------------------------------------------------------
+}
\ No newline at end of file
@@ -0,0 +1,218 @@
+/*
+Copyright (C) 2026  S Combes
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+*/
+package cisolate;
+
+import java.util.Arrays;
+
+class TourSeeder {
+
+// Starting tours for the transit optimisers.  Points are found in raster
+// scan order, which as a tour zig-zags across the whole board on every
+// line, so an optimiser starting from it spends its first reps just
+// undoing that.  A constructed tour is usually within a quarter or so of
+// the best, and is all there is to go on if optimisation is turned off.
+
+// Works on the points of a PathOrder, or on the ends of a PathPairOrder,
+// where each unit (pair of ends) is entered by one end and left by the
+// other, so seeding also chooses which way each curve is cut.
+
+static final int SCAN=0;         // As found (the original)
+static final int NEAREST=1;      // Always on to the nearest point left
+static final int GREEDY_EDGE=2;  // Shortest legs first, then joined up
+static final int HILBERT=3;      // Along a space-filling curve : quickest
+static final int CANDIDATES=8;   // Nearest ends GREEDY_EDGE considers
+
+private final Points2D points;
+private final int unit;          // 1 for points, 2 for pairs
+private final int size;
+private final int [] order;      // Being built
+private int placed=0;
+private final boolean [] visited;   // By unit
+
+private TourSeeder(Points2D points,int unit,int [] order)
+{
+this.points=points;
+this.unit=unit;
+this.order=order;
+size=points.size();
+visited=new boolean[size/unit];
+}
+// ------------------------------------------------------------------------
+static PathOrder path(Points2D points,int method)
+{ // Through points
+PathOrder path=new PathOrder(points.size(),true);
+new TourSeeder(points,1,path.order()).seed(method);
+return path;
+}
+// ------------------------------------------------------------------------
+static PathPairOrder pairs(Points2D ends,int method)
+{ // Through pairs of ends, as Skeleton.endPairs()
+PathPairOrder path=new PathPairOrder(ends.size(),true);
+new TourSeeder(ends,2,path.order()).seed(method);
+return path;
+}
+// ------------------------------------------------------------------------
+private void seed(int method)
+{
+switch (method) {
+  case NEAREST:     nearest();      break;
+  case GREEDY_EDGE: greedyEdge();   break;
+  case HILBERT:     hilbert();      break;
+  default: for (int i=0;i<size;i++) order[i]=i;
+}
+}
+// ------------------------------------------------------------------------
+private int visit(int end)
+{ // Onto the tour by end, returning the end it's left by
+visited[end/unit]=true;
+order[placed++]=end;
+if (unit==1) return end;
+order[placed++]=end^1;
+return end^1;
+}
+// ------------------------------------------------------------------------
+private long squared(int a,int b)
+{
+long dx=points.getX(a)-points.getX(b);
+long dy=points.getY(a)-points.getY(b);
+return dx*dx+dy*dy;
+}
+// ------------------------------------------------------------------------
+private int closest(int from,int [] ends,int count)
+{ // Of the first count ends, the closest to from on a unit not yet visited
+int best=-1;
+long nearest=Long.MAX_VALUE;
+for (int i=0;i<count;i++) {
+  int end=ends[i];
+  if (visited[end/unit]) continue;
+  long d=squared(from,end);
+  if (d<nearest) { nearest=d; best=end; }
+}
+return best;
+}
+// ------------------------------------------------------------------------
+private void nearest()
+{
+int [] ends=new int[size];
+for (int i=0;i<size;i++) ends[i]=i;
+
+int exit=-1;
+while (placed<size) exit=visit((exit<0)?0:closest(exit,ends,size));
+}
+// ------------------------------------------------------------------------
+private void greedyEdge()
+{ // Takes the shortest legs between the CANDIDATES nearest ends of each
+  // end that leave no end with too many legs and close no loop, so making
+  // fragments of tour.  Then joins those, nearest first.
+int limit=(unit==1)?2:1;  // Legs from each end, not counting its pair's
+int [] link=new int[2*size];
+int [] degree=new int[size];
+int [] parent=new int[size/unit];   // Units joined, as a union-find
+Arrays.fill(link,-1);
+for (int u=0;u<parent.length;u++) parent[u]=u;
+
+Neighbours near=new Neighbours(points,CANDIDATES,unit);
+long [] legs=new long[size*CANDIDATES];
+int count=0;
+for (int i=0;i<legs.length;i++)    // Shortest first : distances are +ve
+  if (near.get(i/CANDIDATES,i%CANDIDATES)>=0)  // so sort as float bits do
+    legs[count++]=((long)Float.floatToIntBits((float)Math.sqrt(
+                   squared(i/CANDIDATES,near.get(i/CANDIDATES,i%CANDIDATES))))<<32) | i;
+Arrays.sort(legs,0,count);
+
+for (int l=0;l<count;l++) {
+  int i=(int)legs[l];
+  int a=i/CANDIDATES;
+  int b=near.get(a,i%CANDIDATES);
+  if (degree[a]>=limit || degree[b]>=limit) continue;
+  int ua=root(parent,a/unit);
+  int ub=root(parent,b/unit);
+  if (ua==ub) continue;            // Would close a loop
+  parent[ua]=ub;
+  link[2*a+degree[a]++]=b;
+  link[2*b+degree[b]++]=a;
+}
+
+int [] starts=new int[size];       // Ends of the fragments
+int fragments=0;
+for (int i=0;i<size;i++) if (degree[i]<limit) starts[fragments++]=i;
+
+int exit=-1;
+while (placed<size) {
+  int end=(exit<0)?starts[0]:closest(exit,starts,fragments);
+  while (end>=0) {                 // Along the fragment
+    exit=visit(end);
+    end=-1;
+    for (int k=0;k<degree[exit];k++) 
+      if (!visited[link[2*exit+k]/unit]) end=link[2*exit+k];
+  }
+}
+}
+// ------------------------------------------------------------------------
+private static int root(int [] parent,int u)
+{
+while (parent[u]!=u) u=parent[u]=parent[parent[u]];  // Halving the path
+return u;
+}
+// ------------------------------------------------------------------------
+private void hilbert()
+{ // Units in order along the curve (pairs by their mid point), each pair 
+  // entered by the end nearer the last
+int units=size/unit;
+long [] keys=new long[units];
+for (int u=0;u<units;u++) {
+  int x=0,y=0;
+  for (int e=u*unit;e<(u+1)*unit;e++) {
+    x+=points.getX(e);
+    y+=points.getY(e);
+  }
+  keys[u]=(hilbert(x/unit,y/unit)<<32) | u;
+}
+Arrays.sort(keys);
+
+int exit=-1;
+for (long key : keys) {
+  int end=unit*(int)key;
+  if (unit==2 && exit>=0 && squared(exit,end^1)<squared(exit,end)) end^=1;
+  exit=visit(end);
+}
+}
+// ------------------------------------------------------------------------
+private static long hilbert(int x,int y)
+{ // Distance along a Hilbert curve filling the 2^15 pixel square
+int n=1<<15;
+x=Math.max(0,Math.min(n-1,x));
+y=Math.max(0,Math.min(n-1,y));
+long d=0;
+for (int s=n/2;s>0;s/=2) {
+  int rx=((x&s)>0)?1:0;
+  int ry=((y&s)>0)?1:0;
+  d+=(long)s*s*((3*rx)^ry);
+  if (ry==0) {         // Turn the quadrant to suit
+    if (rx==1) {
+      x=n-1-x;
+      y=n-1-y;
+    }
+    int swap=x;
+    x=y;
+    y=swap;
+  }
+}
+return d;
+}
+}
\ No newline at end of file